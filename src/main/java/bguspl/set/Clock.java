@@ -0,0 +1,45 @@
+package bguspl.set;
+
+/**
+ * The source of time for the game entities (see RealClock and VirtualClock).
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Sleeps for the given time.
+     *
+     * @param millis - the time to sleep in milliseconds.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Waits on a monitor until it is notified or the given time passes.
+     * The calling thread must own the monitor (as for Object::wait).
+     *
+     * @param monitor - the object to wait on.
+     * @param millis  - the maximal time to wait in milliseconds.
+     */
+    void await(Object monitor, long millis) throws InterruptedException;
+
+    /**
+     * Tells the clock that a thread will sleep or wait on it (only a virtual clock needs to know, see VirtualClock).
+     * Called before the thread starts.
+     *
+     * @param thread - the thread.
+     */
+    default void register(Thread thread) {
+    }
+
+    /**
+     * Tells the clock that a registered thread no longer sleeps or waits on it (e.g. when the thread ends).
+     *
+     * @param thread - the thread.
+     */
+    default void unregister(Thread thread) {
+    }
+}
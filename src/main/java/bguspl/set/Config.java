@@ -15,6 +15,12 @@ import java.util.logging.Logger;
  */
 public class Config {
 
+    /**
+     * The logger level and format
+     */
+    public final Level logLevel;
+    public final String logFormat;
+
     /**
      * Random spin cycles for Config::randomSpin (for debugging / testing)
      */
@@ -77,15 +83,118 @@ public class Config {
     public final long pointFreezeMillis;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the table
+     * The number of milliseconds between two cards placed/removed on the screen (does not delay the game itself)
      */
     public final long tableDelayMillis;
 
+    /**
+     * The number of sets the dealer tries to have on the table after each deal (0 to deal blindly)
+     */
+    public final int dealTargetSets;
+
+    /**
+     * The maximal number of random draws the dealer tries per deal before it places a set on purpose
+     */
+    public final int dealMaxAttempts;
+
+    /**
+     * The number of milliseconds within which a repeated key press (keyboard auto-repeat, or pressing a slot twice) is
+     * coalesced
+     */
+    public final long inputCoalesceMillis;
+
+    /**
+     * The number of key presses per second a player may make (0 for no limit)
+     */
+    public final double inputRatePerSecond;
+
+    /**
+     * The number of key presses a player may make in a burst above the rate
+     */
+    public final int inputBurst;
+
+    /**
+     * The number of milliseconds a computer player waits between two key presses
+     */
+    public final long computerKeyPressMillis;
+
+    /**
+     * The key press strategy of each computer player ("random" or "smart"), by player id
+     */
+    private final String[] computerStrategies;
+
+    /**
+     * The median number of milliseconds a smart computer player needs to react to a set on the table, by player id
+     */
+    private final long[] computerReactionMillis;
+
+    /**
+     * The spread (log-normal sigma) of the reaction time of a smart computer player, by player id
+     */
+    private final double[] computerReactionDeviations;
+
+    /**
+     * The probability that a smart computer player claims a wrong set, by player id
+     */
+    private final double[] computerErrorRates;
+
     /**
      * The number of milliseconds to pause at the end of the game before closing
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The file of the players' statistics across games (empty to not keep them)
+     */
+    public final String scoreBoardFile;
+
+    /**
+     * The number of players a new statistics file has room for
+     */
+    public final int scoreBoardCapacity;
+
+    /**
+     * The file the game in progress is checkpointed to, and resumed from when the game starts (empty to not keep it)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The number of milliseconds between two checkpoints of the game in progress (0 or less to checkpoint it only on
+     * shutdown)
+     */
+    public final long checkpointMillis;
+
+    /**
+     * The number of game events a consumer of the event bus may fall behind before it loses events
+     */
+    public final int eventBusCapacity;
+
+    /**
+     * The file the game events are written to, by a consumer of the event bus (empty to not write them)
+     */
+    public final String eventJournalFile;
+
+    /**
+     * The maximal number of milliseconds the shutdown may take (all its phases together, e.g. waiting for the game
+     * threads to stop)
+     */
+    public final long shutdownTimeoutMillis;
+
+    /**
+     * The TCP port remote players connect to (0 for any free port, negative to disable remote players)
+     */
+    public final int serverPort;
+
+    /**
+     * The maximal number of messages queued for a remote player before it is disconnected as too slow
+     */
+    public final int serverOutboundMessages;
+
+    /**
+     * The user interface: "swing" (a window) or "headless" (no window, the user interface calls are only counted)
+     */
+    public final String userInterface;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -103,7 +212,18 @@ public class Config {
     public final int columns;
 
     /**
-     * The total number of cells in the table grid
+     * The number of extra columns the dealer deals to when the cards on the table have no set
+     */
+    public final int overflowColumns;
+
+    /**
+     * The number of cells the dealer normally deals to (rows * columns)
+     */
+    public final int baseTableSize;
+
+    /**
+     * The total number of cells in the table grid (including the overflow columns)
+     * Note: the overflow cells are numbered after the base cells (row by row).
      */
     public final int tableSize;
 
@@ -147,6 +267,12 @@ public class Config {
     private static final String[] playerKeysDefaults = {
             "81,87,69,82,65,83,68,70,90,88,67,86",
             "85,73,79,80,74,75,76,59,77,44,46,47"};
+    private static final String[] playerOverflowKeysDefaults = {"84,71,66", "91,222,93"};
+
+    /**
+     * The properties this configuration was parsed from (used to derive modified copies at runtime)
+     */
+    private final Properties properties;
 
     /**
      * Attempts to read the config properties from the current working directory. Otherwise, tries to load them
@@ -182,9 +308,11 @@ public class Config {
 
     public Config(Logger logger, Properties properties) {
 
+        this.properties = properties;
+
         // logger settings
-        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
-        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
         Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
 
         // for debugging
@@ -204,21 +332,54 @@ public class Config {
         players = humanPlayers + computerPlayers;
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
-        turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
-        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
-        pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
-        penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
-        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
-        endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        turnTimeoutMillis = secondsToMillis(properties.getProperty("TurnTimeoutSeconds", "60"));
+        turnTimeoutWarningMillis = secondsToMillis(properties.getProperty("TurnTimeoutWarningSeconds", "60"));
+        pointFreezeMillis = secondsToMillis(properties.getProperty("PointFreezeSeconds", "1"));
+        penaltyFreezeMillis = secondsToMillis(properties.getProperty("PenaltyFreezeSeconds", "3"));
+        tableDelayMillis = secondsToMillis(properties.getProperty("TableDelaySeconds", "0.1"));
+        dealTargetSets = Integer.parseInt(properties.getProperty("DealTargetSets", "1"));
+        dealMaxAttempts = Integer.parseInt(properties.getProperty("DealMaxAttempts", "16"));
+        inputCoalesceMillis = secondsToMillis(properties.getProperty("InputCoalesceSeconds", "0.03"));
+        inputRatePerSecond = Double.parseDouble(properties.getProperty("InputRatePerSecond", "0"));
+        inputBurst = Integer.parseInt(properties.getProperty("InputBurst", "10"));
+        computerKeyPressMillis = secondsToMillis(properties.getProperty("ComputerKeyPressSeconds",
+                properties.getProperty("TableDelaySeconds", "0.1")));
+        computerStrategies = new String[players];
+        String[] strategies = perComputerPlayer(properties.getProperty("ComputerStrategy", "random"));
+        Arrays.setAll(computerStrategies, i -> strategies[computerIndex(i, strategies.length)].toLowerCase());
+        computerReactionMillis = new long[players];
+        String[] reactions = perComputerPlayer(properties.getProperty("ComputerReactionSeconds", "1"));
+        Arrays.setAll(computerReactionMillis, i -> secondsToMillis(reactions[computerIndex(i, reactions.length)]));
+        computerReactionDeviations = new double[players];
+        String[] deviations = perComputerPlayer(properties.getProperty("ComputerReactionDeviation", "0.25"));
+        Arrays.setAll(computerReactionDeviations, i -> Double.parseDouble(deviations[computerIndex(i, deviations.length)]));
+        computerErrorRates = new double[players];
+        String[] errorRates = perComputerPlayer(properties.getProperty("ComputerErrorRate", "0"));
+        Arrays.setAll(computerErrorRates, i -> Double.parseDouble(errorRates[computerIndex(i, errorRates.length)]));
+        endGamePauseMillies = secondsToMillis(properties.getProperty("EndGamePauseSeconds", "5"));
+        scoreBoardFile = properties.getProperty("ScoreBoardFile", "").trim();
+        scoreBoardCapacity = Integer.parseInt(properties.getProperty("ScoreBoardCapacity", "1024"));
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+        checkpointMillis = secondsToMillis(properties.getProperty("CheckpointSeconds", "5"));
+        eventBusCapacity = Integer.parseInt(properties.getProperty("EventBusCapacity", "4096"));
+        eventJournalFile = properties.getProperty("EventJournalFile", "").trim();
+        shutdownTimeoutMillis = secondsToMillis(properties.getProperty("ShutdownTimeoutSeconds", "1"));
+
+        // remote players settings
+        serverPort = Integer.parseInt(properties.getProperty("ServerPort", "-1"));
+        serverOutboundMessages = Integer.parseInt(properties.getProperty("ServerOutboundMessages", "4096"));
 
         // ui settings
+        userInterface = properties.getProperty("UserInterface", "swing").trim().toLowerCase();
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
         playerNames = new String[players];
         Arrays.setAll(playerNames, i -> i < names.length ? names[i].trim() : "Player " + (i + 1));
 
         rows = Integer.parseInt(properties.getProperty("Rows", "3"));
         columns = Integer.parseInt(properties.getProperty("Columns", "4"));
-        tableSize = rows * columns;
+        overflowColumns = Integer.parseInt(properties.getProperty("OverflowColumns", "0"));
+        baseTableSize = rows * columns;
+        tableSize = rows * (columns + overflowColumns);
         cellWidth = Integer.parseInt(properties.getProperty("CellWidth", "258"));
         cellHeight = Integer.parseInt(properties.getProperty("CellHeight", "167"));
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
@@ -226,22 +387,132 @@ public class Config {
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
 
         // keyboard input data
-        playerKeys = new int[players][rows * columns];
+        playerKeys = new int[players][tableSize];
         for (int i = 0; i < players; i++) {
             String defaultCodes = "";
             if (i < 2) defaultCodes = playerKeysDefaults[i];
             String playerKeysString = properties.getProperty("PlayerKeys" + (i + 1), defaultCodes);
             if (playerKeysString.length() > 0) {
                 String[] codes = playerKeysString.split(",");
-                if (codes.length != tableSize)
-                    logger.severe("warning: player " + (i + 1) + " keys (" + codes.length + ") mismatch table size (" + tableSize + ").");
-                for (int j = 0; j < Math.min(codes.length, tableSize); ++j) // parse the key codes string
+                if (codes.length != baseTableSize)
+                    logger.severe("warning: player " + (i + 1) + " keys (" + codes.length + ") mismatch table size (" + baseTableSize + ").");
+                for (int j = 0; j < Math.min(codes.length, baseTableSize); ++j) // parse the key codes string
                     playerKeys[i][j] = Integer.parseInt(codes[j]);
             }
+            if (overflowColumns == 0) continue;
+            String defaultOverflowCodes = i < 2 ? playerOverflowKeysDefaults[i] : "";
+            String overflowKeysString = properties.getProperty("PlayerOverflowKeys" + (i + 1), defaultOverflowCodes);
+            if (overflowKeysString.length() > 0) {
+                String[] codes = overflowKeysString.split(",");
+                int overflowSize = tableSize - baseTableSize;
+                if (codes.length != overflowSize)
+                    logger.severe("warning: player " + (i + 1) + " overflow keys (" + codes.length + ") mismatch overflow size (" + overflowSize + ").");
+                for (int j = 0; j < Math.min(codes.length, overflowSize); ++j)
+                    playerKeys[i][baseTableSize + j] = Integer.parseInt(codes[j].trim());
+            }
         }
     }
 
+    /**
+     * @return - the row of a slot in the table grid.
+     */
+    public int slotRow(int slot) {
+        return slot < baseTableSize ? slot / columns : (slot - baseTableSize) / overflowColumns;
+    }
+
+    /**
+     * @return - the column of a slot in the table grid (the overflow columns are to the right of the base columns).
+     */
+    public int slotColumn(int slot) {
+        return slot < baseTableSize ? slot % columns : columns + (slot - baseTableSize) % overflowColumns;
+    }
+
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
+
+    public String computerStrategy(int player) {
+        return computerStrategies[player];
+    }
+
+    public long computerReactionMillis(int player) {
+        return computerReactionMillis[player];
+    }
+
+    public double computerReactionDeviation(int player) {
+        return computerReactionDeviations[player];
+    }
+
+    public double computerErrorRate(int player) {
+        return computerErrorRates[player];
+    }
+
+    /**
+     * Checks whether this configuration can replace another one in a running game. Only tunable values (delays,
+     * timeouts, freeze times, hints, computer player settings, log settings etc.) may change, the values that the
+     * game entities and the user interface are built from (cards, players, table grid, screen layout, keys, the
+     * remote players server, the score board, checkpoint and event journal files) may not.
+     *
+     * @param other - the configuration of the running game.
+     * @return - a description of the first value that may not change, or null if this configuration can replace it.
+     */
+    public String nonReloadableChange(Config other) {
+        if (featureSize != other.featureSize || featureCount != other.featureCount) return "card features";
+        if (humanPlayers != other.humanPlayers || computerPlayers != other.computerPlayers) return "number of players";
+        if (rows != other.rows || columns != other.columns || overflowColumns != other.overflowColumns)
+            return "table grid";
+        if (cellWidth != other.cellWidth || cellHeight != other.cellHeight || playerCellWidth != other.playerCellWidth
+                || playerCellHeight != other.playerCellHeight || fontSize != other.fontSize) return "screen layout";
+        if (!userInterface.equals(other.userInterface)) return "user interface";
+        if (!Arrays.equals(playerNames, other.playerNames)) return "player names";
+        if (!Arrays.deepEquals(playerKeys, other.playerKeys)) return "player keys";
+        if (serverPort != other.serverPort || serverOutboundMessages != other.serverOutboundMessages)
+            return "remote players server";
+        if (!scoreBoardFile.equals(other.scoreBoardFile)) return "score board file";
+        if (!checkpointFile.equals(other.checkpointFile)) return "checkpoint file";
+        if (eventBusCapacity != other.eventBusCapacity || !eventJournalFile.equals(other.eventJournalFile))
+            return "event bus";
+        return null;
+    }
+
+    /**
+     * @return - a number of seconds (as in the config.properties file) in milliseconds, rounded to the nearest one (so
+     * a value written by GameManagement reads back exactly).
+     */
+    private static long secondsToMillis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000.0);
+    }
+
+    /**
+     * Splits a comma separated list of per computer player values.
+     * Note: if there are more computer players than values, the last value is used for the remaining players.
+     */
+    private static String[] perComputerPlayer(String values) {
+        String[] split = values.split(",");
+        Arrays.setAll(split, i -> split[i].trim());
+        return split;
+    }
+
+    /**
+     * @return - the index of the value that applies to a player in a list of per computer player values.
+     */
+    private int computerIndex(int player, int length) {
+        return Math.max(0, Math.min(player - humanPlayers, length - 1));
+    }
+
+    /**
+     * Creates a copy of this configuration with a single property replaced. The current object is not modified, so
+     * the copy can be published as a whole (e.g. env.config = env.config.with(...)).
+     *
+     * @param logger - the logger to report configuration warnings to.
+     * @param key    - the property name (as in the config.properties file).
+     * @param value  - the new property value.
+     * @return - a new configuration object.
+     */
+    public Config with(Logger logger, String key, String value) {
+        Properties modified = new Properties();
+        modified.putAll(properties);
+        modified.setProperty(key, value);
+        return new Config(logger, modified);
+    }
 }
@@ -0,0 +1,155 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the configuration file and publishes a new configuration (see Env::updateConfig) whenever it changes, so
+ * tunable values can be changed without restarting the game. A changed file that modifies values that cannot change
+ * in a running game (see Config::nonReloadableChange) is rejected as a whole.
+ * <p>
+ * An editor may write the file in several steps, so the file is read once it did not change for SETTLE_MILLIS. A file
+ * that cannot be read, cannot be parsed or lacks a property the previous file had (e.g. a file read while it was
+ * truncated) is rejected as well, and the current configuration stays.
+ */
+public class ConfigWatcher implements Runnable {
+
+    /**
+     * The time the file must not change before it is read (in milliseconds).
+     */
+    static final long SETTLE_MILLIS = 200;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The watched configuration file.
+     */
+    private final Path file;
+
+    private final WatchService watchService;
+
+    private final ThreadLogger thread;
+
+    /**
+     * The properties of the last file read (a file that lacks one of them is rejected).
+     */
+    private volatile Set<String> keys;
+
+    public ConfigWatcher(Env env, Path file) throws IOException {
+        this.env = env;
+        this.file = file.toAbsolutePath();
+        keys = read().stringPropertyNames();
+        watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new ThreadLogger(env.threads.track("config-watcher", this), "config-watcher", env.logger);
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.startWithLog();
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @param timeoutMillis - the maximal time to wait for the watcher thread to stop.
+     * @return - true iff the watcher thread stopped in time.
+     */
+    public boolean stop(long timeoutMillis) throws InterruptedException {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        return thread.joinWithLog(timeoutMillis);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (!changed(watchService.take())) continue;
+                while (changed(watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS))) {
+                    // wait until the file did not change for SETTLE_MILLIS
+                }
+                try {
+                    reload();
+                } catch (RuntimeException e) { // the watcher must survive any file
+                    env.logger.severe("configuration reload failed: " + e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    /**
+     * @param key - a signalled watch key (null if none).
+     * @return - true iff the key reports a change to the configuration file.
+     */
+    private boolean changed(WatchKey key) {
+        if (key == null) return false;
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents())
+            changed |= event.context() instanceof Path && file.getFileName().equals(event.context());
+        key.reset();
+        return changed;
+    }
+
+    private Properties read() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * Reads the configuration file and publishes it if it can replace the current configuration.
+     */
+    public void reload() {
+        Properties properties;
+        try {
+            properties = read();
+        } catch (IOException | IllegalArgumentException e) { // IllegalArgumentException: a malformed escape
+            env.logger.severe("configuration change rejected, cannot read " + file + ": " + e.getMessage());
+            return;
+        }
+        for (String key : keys)
+            if (!properties.containsKey(key)) {
+                env.logger.severe("configuration change rejected, " + file + " has no " + key);
+                return;
+            }
+        env.updateConfig(current -> {
+            Config fresh;
+            try {
+                fresh = new Config(env.logger, properties);
+            } catch (RuntimeException e) {
+                Main.setLoggerLevelAndFormat(env.logger, current.logLevel, current.logFormat);
+                env.logger.severe("configuration change rejected, " + file + " is invalid: " + e);
+                return current;
+            }
+            String change = fresh.nonReloadableChange(current);
+            if (change == null) {
+                keys = properties.stringPropertyNames();
+                env.logger.severe("configuration reloaded from " + file);
+                return fresh;
+            }
+            Main.setLoggerLevelAndFormat(env.logger, current.logLevel, current.logFormat); // undo the new log settings
+            env.logger.severe("configuration change rejected, the " + change + " cannot change while the game is running");
+            return current;
+        });
+    }
+}
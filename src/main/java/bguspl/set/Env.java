@@ -1,18 +1,48 @@
 package bguspl.set;
 
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 public class Env {
 
     public final Logger logger;
-    public final Config config;
+    /**
+     * The current configuration. Replaced as a whole when a tunable value changes at runtime, so readers should not
+     * cache it across operations.
+     */
+    public volatile Config config;
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * The source of time for the game entities.
+     */
+    public final Clock clock;
+
+    /**
+     * Creates the game threads and accounts for their cost.
+     */
+    public final GameThreads threads = new GameThreads();
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new RealClock());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.clock = clock;
+    }
+
+    /**
+     * Replaces the current configuration. Updates are serialized, so concurrent updates based on the current
+     * configuration (e.g. from the management bean and from the configuration file watcher) are not lost.
+     *
+     * @param update - computes the new configuration from the current one.
+     */
+    public synchronized void updateConfig(UnaryOperator<Config> update) {
+        config = update.apply(config);
     }
 }
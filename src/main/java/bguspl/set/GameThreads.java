@@ -0,0 +1,152 @@
+package bguspl.set;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the game threads, names them consistently ("role" or "role-id", e.g. "dealer", "player-0", "computer-1")
+ * and accounts for their cost by role: CPU time, the number of times (and the time) they were blocked on a monitor or
+ * waited, and the bytes they allocated (see ThreadMXBean; the values the JVM does not support are reported as -1).
+ * A thread is sampled when it ends and whenever a report is made.
+ */
+public class GameThreads {
+
+    /**
+     * The resources a thread used so far.
+     */
+    private static class Sample {
+        long cpuNanos = -1;
+        long blockedCount;
+        long blockedMillis = -1;
+        long waitedCount;
+        long waitedMillis = -1;
+        long allocatedBytes = -1;
+    }
+
+    /**
+     * A thread that ran a tracked task.
+     */
+    private static class Record {
+        final String role;
+        final long threadId;
+        volatile Sample last = new Sample(); // the final sample once the thread ended
+        volatile boolean ended;
+
+        Record(String role, long threadId) {
+            this.role = role;
+            this.threadId = threadId;
+        }
+    }
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final Queue<Record> records = new ConcurrentLinkedQueue<>();
+
+    public GameThreads() {
+        if (threadBean.isThreadContentionMonitoringSupported() && !threadBean.isThreadContentionMonitoringEnabled())
+            threadBean.setThreadContentionMonitoringEnabled(true); // for the blocked and waited times
+        if (threadBean.isThreadCpuTimeSupported() && !threadBean.isThreadCpuTimeEnabled())
+            threadBean.setThreadCpuTimeEnabled(true);
+    }
+
+    /**
+     * Creates a thread for a role that has one thread.
+     */
+    public Thread newThread(String role, Runnable target) {
+        return new Thread(track(role, target), role);
+    }
+
+    /**
+     * Creates a thread for a role that has a thread per entity (e.g. a thread per player).
+     */
+    public Thread newThread(String role, int id, Runnable target) {
+        return new Thread(track(role, target), role + "-" + id);
+    }
+
+    /**
+     * @return - a factory for an executor's threads (all of them have the role name).
+     */
+    public ThreadFactory factory(String role, boolean daemon) {
+        return target -> {
+            Thread thread = newThread(role, target);
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+
+    /**
+     * Wraps a task so that the thread running it is accounted for (for threads that are not created here).
+     */
+    public Runnable track(String role, Runnable target) {
+        return () -> {
+            Record record = new Record(role, Thread.currentThread().getId());
+            records.add(record);
+            try {
+                target.run();
+            } finally {
+                record.last = sample(record.threadId, record.last);
+                record.ended = true;
+            }
+        };
+    }
+
+    /**
+     * @return - a line per role with the number of threads and their total resource use, in the order the roles
+     * started.
+     */
+    public String[] report() {
+        Map<String, long[]> roles = new LinkedHashMap<>(); // threads, cpu, blocked, blocked ms, waited, waited ms, bytes
+        for (Record record : records) {
+            Sample sample = record.ended ? record.last : (record.last = sample(record.threadId, record.last));
+            long[] total = roles.computeIfAbsent(record.role, role -> new long[]{0, -1, 0, -1, 0, -1, -1});
+            total[0]++;
+            total[1] = add(total[1], sample.cpuNanos);
+            total[2] += sample.blockedCount;
+            total[3] = add(total[3], sample.blockedMillis);
+            total[4] += sample.waitedCount;
+            total[5] = add(total[5], sample.waitedMillis);
+            total[6] = add(total[6], sample.allocatedBytes);
+        }
+        List<String> lines = new ArrayList<>();
+        roles.forEach((role, total) -> lines.add(String.format(
+                "%s: %d threads, cpu %d ms, blocked %d times (%d ms), waited %d times (%d ms), allocated %d KB",
+                role, total[0], total[1] < 0 ? -1 : total[1] / 1_000_000L, total[2], total[3], total[4], total[5],
+                total[6] < 0 ? -1 : total[6] / 1024)));
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * Samples a live thread.
+     *
+     * @param previous - the last sample of the thread, kept if the thread is no longer alive.
+     */
+    private Sample sample(long threadId, Sample previous) {
+        ThreadInfo info = threadBean.getThreadInfo(threadId);
+        if (info == null) return previous;
+        Sample sample = new Sample();
+        if (threadBean.isThreadCpuTimeSupported()) sample.cpuNanos = threadBean.getThreadCpuTime(threadId);
+        sample.blockedCount = info.getBlockedCount();
+        sample.blockedMillis = info.getBlockedTime();
+        sample.waitedCount = info.getWaitedCount();
+        sample.waitedMillis = info.getWaitedTime();
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+            sample.allocatedBytes = ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadId);
+        return sample;
+    }
+
+    /**
+     * Adds a value that may be unsupported (-1) to a total (-1 if no value was supported).
+     */
+    private static long add(long total, long value) {
+        if (value < 0) return total;
+        return total < 0 ? value : total + value;
+    }
+}
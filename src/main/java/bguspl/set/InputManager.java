@@ -2,6 +2,8 @@ package bguspl.set;
 
 import bguspl.set.ex.Player;
 
+import java.awt.event.FocusEvent;
+import java.awt.event.FocusListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.Arrays;
@@ -9,18 +11,32 @@ import java.util.logging.Logger;
 
 /**
  * This class handles the input from the keyboard, translates it to table grid slots and dispatches accordingly.
+ * The key presses are only stamped and queued here (see Player::submitKeyPress), so the event dispatch thread does not
+ * wait for the game logic. Keyboard auto-repeat is dropped here: a key that is still held, or that is pressed again
+ * within Config::inputCoalesceMillis of its release (some platforms repeat with release and press pairs), does not
+ * toggle the token again. The keys count as released when the window loses the focus, since their release events go
+ * elsewhere.
  */
-class InputManager extends KeyAdapter {
+class InputManager extends KeyAdapter implements FocusListener {
 
     private static final int MAX_KEY_CODE = 255;
     private final Player[] players;
     int[] keyMap = new int[MAX_KEY_CODE + 1];
     int[] keyToSlot = new int[MAX_KEY_CODE + 1];
     private final Logger logger;
+    private final long coalesceMillis;
+
+    /**
+     * Whether each key is held, and the time it was last released (only used by the event dispatch thread).
+     */
+    private boolean[] held = new boolean[MAX_KEY_CODE + 1];
+    private long[] released = new long[MAX_KEY_CODE + 1];
 
     public InputManager(Logger logger, Config config, Player[] players) {
         this.players = players;
         this.logger = logger;
+        coalesceMillis = config.inputCoalesceMillis;
+        Arrays.fill(released, Long.MIN_VALUE / 2);
 
         // initialize the keys
         for (int player = 0; player < config.players; ++player)
@@ -35,6 +51,10 @@ class InputManager extends KeyAdapter {
     private void reallocArrays(int keyCode) {
         keyMap = Arrays.copyOf(keyMap, keyCode + 1);
         keyToSlot = Arrays.copyOf(keyToSlot, keyCode + 1);
+        held = Arrays.copyOf(held, keyCode + 1);
+        int length = released.length;
+        released = Arrays.copyOf(released, keyCode + 1);
+        Arrays.fill(released, length, released.length, Long.MIN_VALUE / 2);
     }
 
     @Override
@@ -42,9 +62,33 @@ class InputManager extends KeyAdapter {
         // dispatch the key event to the player according to the key map
         int keyCode = e.getKeyCode();
         int player = keyMap[keyCode] - 1;
-        if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
-            players[player].keyPressed(keyToSlot[keyCode]);
+        if (player >= 0 && players[player] != null) { // the players may still be created when the window shows
+            if (held[keyCode] || e.getWhen() - released[keyCode] <= coalesceMillis) {
+                held[keyCode] = true;
+                players[player].keyRepeated();
+                return;
+            }
+            held[keyCode] = true;
+            // the event may have waited in the event queue, count that time too
+            long queued = Math.max(0, System.currentTimeMillis() - e.getWhen());
+            players[player].submitKeyPress(keyToSlot[keyCode], System.nanoTime() - queued * 1_000_000L);
         }
     }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        if (keyCode >= held.length) return;
+        held[keyCode] = false;
+        released[keyCode] = e.getWhen();
+    }
+
+    @Override
+    public void focusGained(FocusEvent e) {
+    }
+
+    @Override
+    public void focusLost(FocusEvent e) {
+        Arrays.fill(held, false);
+    }
 }
@@ -1,15 +1,26 @@
 package bguspl.set;
 
 import bguspl.set.ex.Dealer;
+import bguspl.set.ex.EventJournal;
+import bguspl.set.ex.GameEventBus;
+import bguspl.set.ex.GameListener;
+import bguspl.set.ex.GameManagement;
+import bguspl.set.ex.GameSnapshot;
 import bguspl.set.ex.Player;
+import bguspl.set.ex.ScoreBoard;
 import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.*;
 
 /**
@@ -20,14 +31,22 @@ public class Main {
     private static Dealer dealer;
     private static Thread mainThread;
 
-    private static boolean xButtonPressed = false;
+    private static volatile boolean xButtonPressed = false;
     private static Logger logger;
 
-    public static void xButtonPressed() throws InterruptedException {
+    /**
+     * Stops the game components when the game ends.
+     */
+    private static volatile ShutdownCoordinator shutdown;
+
+    /**
+     * Ends the game. Returns at once (it is called by the event dispatch thread): the main thread shuts the game down.
+     */
+    public static void xButtonPressed() {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
         if (dealer != null) dealer.terminate();
-        mainThread.join();
+        if (shutdown != null) shutdown.interruptUnlessStarted(mainThread); // skips the end of game pause
     }
 
     /**
@@ -38,49 +57,235 @@ public class Main {
     public static void main(String[] args) {
 
         mainThread = Thread.currentThread();
+        StartupTimer startup = new StartupTimer();
+
+        // start the platform MBean server (most of the management phase) while the game is created
+        long serverPhase = startup.phaseStarted();
+        Thread mbeanServer = new Thread(() -> {
+            ManagementFactory.getPlatformMBeanServer();
+            startup.backgroundPhaseEnded("management server", serverPhase);
+        }, "startup-management");
+        mbeanServer.setDaemon(true);
+        mbeanServer.start();
 
         // create the game environment objects
+        long phase = startup.phaseStarted();
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        shutdown = new ShutdownCoordinator(logger);
+        shutdown.register("logs", timeout -> {
+            for (Handler h : logger.getHandlers()) h.flush();
+            return true;
+        });
+        startup.phaseEnded("logger", phase);
+
+        phase = startup.phaseStarted();
         Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        startup.phaseEnded("config", phase);
 
+        // build the window (mostly decoding the card images) while the game entities are created
         Player[] players = new Player[config.players];
-        UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
+        boolean headless = config.userInterface.equals("headless");
+        if (!headless && !config.userInterface.equals("swing"))
+            logger.severe("unknown user interface " + config.userInterface + ", using swing.");
+        CompletableFuture<UserInterface> swing = headless ? null : CompletableFuture.supplyAsync(() -> {
+            long uiPhase = startup.phaseStarted();
+            try {
+                return new UserInterfaceSwing(logger, config, players);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating swing user interface: " + e.getMessage());
+                logger.severe("will try to run without user interface");
+                if (config.humanPlayers > 0)
+                    logger.severe("warning: running with human players with no user interface");
+                return null;
+            } finally {
+                startup.backgroundPhaseEnded("user interface", uiPhase);
+            }
+        });
+
+        phase = startup.phaseStarted();
+        Util util = new UtilImpl(config);
+        UserInterfaceDecorator decorator = null;
+        UserInterfaceHeadless counters = null;
+        RemotePlayerServer server = null;
+        Env env;
+        if (headless) { // the user interface calls are only counted (and passed on to the remote players)
+            counters = new UserInterfaceHeadless();
+            server = openServer(logger, config, players, counters);
+            env = new Env(logger, config, server != null ? server : counters, util);
+            if (config.humanPlayers > 0 && server == null)
                 logger.severe("warning: running with human players with no user interface");
+        } else {
+            decorator = new UserInterfaceDecorator(logger, util);
+            env = new Env(logger, config, decorator, util);
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
-
-        Env env = new Env(logger, config, ui, util);
 
         // create the game entities
         Table table = new Table(env);
+        GameListener recorder = GameListener.flightRecorder(config.players);
+        if (recorder != null) table.setListener(recorder); // the events are recorded when a flight recording runs
+        else logger.info("flight recorder events are not available");
+        GameEventBus eventBus = newEventBus(logger, config);
+        if (eventBus != null) table.setListener(recorder == null ? eventBus : GameListener.both(recorder, eventBus));
         dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        startup.phaseEnded("game entities", phase);
+
+        // keep the players' statistics across games
+        if (!config.scoreBoardFile.isEmpty()) try {
+            ScoreBoard scoreBoard = ScoreBoard.open(Paths.get(config.scoreBoardFile), config.scoreBoardCapacity);
+            dealer.setScoreBoard(scoreBoard);
+            shutdown.register("score board", timeout -> {
+                scoreBoard.close();
+                return true;
+            });
+        } catch (IOException e) {
+            logger.severe("cannot open the score board: " + e.getMessage());
+        }
+
+        // expose the live game state over JMX
+        phase = startup.phaseStarted();
+        try {
+            mbeanServer.join();
+        } catch (InterruptedException ignored) { // the game is closing, registering just takes longer
+        }
+        GameManagement management = new GameManagement(env, dealer, table);
+        management.setStartupTimer(startup);
+        management.setEventBus(eventBus);
+        management.register();
+        shutdown.register("management", timeout -> {
+            management.unregister();
+            return true;
+        });
+
+        // reload the tunable configuration values when the configuration file changes
+        Path configFile = Paths.get("config.properties");
+        if (Files.isRegularFile(configFile)) try {
+            ConfigWatcher watcher = new ConfigWatcher(env, configFile);
+            watcher.start();
+            shutdown.register("config watcher", watcher::stop);
+        } catch (IOException e) {
+            logger.severe("cannot watch configuration file: " + e.getMessage());
+        }
+        startup.phaseEnded("management", phase);
+
+        shutdown.register("user interface", timeout -> {
+            env.ui.dispose();
+            return true;
+        });
+        if (!headless) {
+            phase = startup.phaseStarted();
+            UserInterface ui = swing.join();
+            startup.phaseEnded("waiting for user interface", phase);
+            if (ui != null) { // the game state changes immediately, the cards on the screen follow at the table delay pace
+                UserInterfacePacer pacer = new UserInterfacePacer(logger, ui, () -> env.config.tableDelayMillis);
+                pacer.onCaughtUp(table::wakeDealer); // the dealer opens the table (see Dealer::placeCardsOnTable)
+                pacer.start();
+                ui = pacer;
+            }
+            server = openServer(logger, config, players, ui);
+            decorator.attach(server != null ? server : ui);
+        }
+        if (server != null) {
+            server.start();
+            logger.severe("remote players can connect to port " + server.getPort());
+        }
+
+        // resume the game a restart interrupted (after the user interface is attached, so it shows the resumed game)
+        if (!config.checkpointFile.isEmpty()) {
+            phase = startup.phaseStarted();
+            Path checkpoint = Paths.get(config.checkpointFile);
+            if (Files.isRegularFile(checkpoint)) try {
+                dealer.resume(GameSnapshot.read(checkpoint, config));
+            } catch (IOException e) {
+                logger.severe("cannot resume the game from the checkpoint: " + e.getMessage());
+            }
+            dealer.setCheckpointFile(checkpoint); // the dealer writes the last checkpoint when it is terminated
+            startup.phaseEnded("checkpoint", phase);
+        }
+
+        // the event consumers stop after the game threads, once they handled all the events
+        if (eventBus != null) {
+            eventBus.start(env.threads);
+            shutdown.register("event bus", timeout -> {
+                boolean stopped = eventBus.stop(timeout);
+                for (String consumer : eventBus.report())
+                    logger.info("event consumer " + consumer);
+                return stopped;
+            });
+        }
 
         // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        phase = startup.phaseStarted();
+        ThreadLogger dealerThread = new ThreadLogger(env.threads.track("dealer", dealer), "dealer", logger);
         dealerThread.startWithLog();
+        shutdown.register("game threads", timeout -> { // the dealer stops the players in the reverse order first
+            dealer.terminate();
+            dealerThread.join(Math.max(1, timeout));
+            return !dealerThread.isAlive();
+        });
+        if (server != null) { // registered last, so the remote input stops first
+            RemotePlayerServer remote = server;
+            shutdown.register("remote players", remote::stop);
+        }
 
         try {
+            if (dealer.awaitFirstDeal(Long.MAX_VALUE)) {
+                startup.phaseEnded("first deal", phase);
+                startup.playable();
+                startup.log(logger);
+            }
+
             // shutdown stuff
             dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+            if (counters != null)
+                for (String method : counters.report())
+                    logger.severe("user interface " + method);
+            if (!xButtonPressed && !headless && config.endGamePauseMillies > 0)
+                Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
+            boolean inTime = shutdown.shutdown(env.config.shutdownTimeoutMillis);
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
-            if (!xButtonPressed) env.ui.dispose();
-            for (Handler h : logger.getHandlers()) h.flush();
+            if (!inTime) System.exit(1); // a thread that did not stop would keep the process alive
+        }
+    }
+
+    /**
+     * Opens the remote players server (see Config::serverPort).
+     *
+     * @param ui - the user interface the server passes the calls on to (may be null).
+     * @return - the server (not started yet), or null if remote players are disabled or the server failed to open.
+     */
+    private static RemotePlayerServer openServer(Logger logger, Config config, Player[] players, UserInterface ui) {
+        if (config.serverPort < 0) return null;
+        try {
+            return new RemotePlayerServer(logger, config, players, ui, config.serverPort);
+        } catch (IOException e) {
+            logger.severe("error starting the remote players server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates the event bus with its consumers (see GameEventBus).
+     *
+     * @return - the event bus, or null if the game events have no consumers.
+     */
+    private static GameEventBus newEventBus(Logger logger, Config config) {
+        if (config.eventJournalFile.isEmpty()) return null;
+        GameEventBus eventBus = new GameEventBus(logger, config.eventBusCapacity);
+        try {
+            eventBus.addConsumer("journal", new EventJournal(Paths.get(config.eventJournalFile)),
+                    GameEventBus.WaitStrategy.BLOCKING, 256);
+        } catch (IOException e) {
+            logger.severe("cannot open the event journal: " + e.getMessage());
+            return null;
         }
+        return eventBus;
     }
 
     private static Logger initLogger() {
@@ -0,0 +1,22 @@
+package bguspl.set;
+
+/**
+ * The wall clock.
+ */
+public class RealClock implements Clock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    @Override
+    public void await(Object monitor, long millis) throws InterruptedException {
+        if (millis > 0) monitor.wait(millis);
+    }
+}
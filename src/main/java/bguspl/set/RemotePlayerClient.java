@@ -0,0 +1,156 @@
+package bguspl.set;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+import static bguspl.set.RemotePlayerServer.*;
+
+/**
+ * A simple blocking client for RemotePlayerServer (e.g. for bots and tests). Keeps a copy of the game state from the
+ * frames it receives.
+ */
+public class RemotePlayerClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * The player this client controls.
+     */
+    public final int player;
+
+    /**
+     * The game state as last received from the server.
+     */
+    private final int[] cards;
+    private final boolean[][] tokens;
+    private final int[] scores;
+    private int[] winners = new int[0];
+
+    /**
+     * Connects to the server and waits for the welcome frames.
+     *
+     * @param host - the server host name.
+     * @param port - the server port.
+     */
+    public RemotePlayerClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(socket.getOutputStream());
+
+        if (in.readByte() != WELCOME) throw new IOException("unexpected frame from server");
+        player = in.readInt();
+        int players = in.readInt();
+        if (in.readByte() != TABLE) throw new IOException("unexpected frame from server");
+        int tableSize = in.readInt();
+        in.readInt();
+
+        cards = new int[tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new boolean[players][tableSize];
+        scores = new int[players];
+    }
+
+    /**
+     * Presses the key of a slot.
+     *
+     * @param slot - the slot number.
+     */
+    public void press(int slot) throws IOException {
+        out.writeByte(PRESS);
+        out.writeInt(slot);
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /**
+     * Waits for a frame from the server and applies it to the game state.
+     *
+     * @param timeoutMillis - the maximal time to wait.
+     * @return - the type of the frame received, or 0 if none was received in time.
+     */
+    public int receive(int timeoutMillis) throws IOException {
+        socket.setSoTimeout(timeoutMillis);
+        byte type;
+        try {
+            type = in.readByte();
+        } catch (SocketTimeoutException e) {
+            return 0;
+        }
+        socket.setSoTimeout(0); // the rest of the frame is on its way
+        int a = in.readInt();
+        int b = in.readInt();
+        switch (type) {
+            case PLACE_CARD:
+                cards[b] = a;
+                break;
+            case REMOVE_CARD:
+                cards[a] = -1;
+                break;
+            case PLACE_TOKEN:
+                tokens[a][b] = true;
+                break;
+            case REMOVE_TOKEN:
+                tokens[a][b] = false;
+                break;
+            case REMOVE_TOKENS:
+                for (boolean[] playerTokens : tokens)
+                    if (a == ALL_SLOTS) Arrays.fill(playerTokens, false);
+                    else playerTokens[a] = false;
+                break;
+            case SCORE:
+                scores[a] = b;
+                break;
+            case WINNER:
+                winners = Arrays.copyOf(winners, winners.length + 1);
+                winners[winners.length - 1] = a;
+                break;
+            default:
+                break;
+        }
+        return type;
+    }
+
+    /**
+     * Receives frames until one of the given type arrives.
+     *
+     * @param type          - the frame type to wait for.
+     * @param timeoutMillis - the maximal time to wait for each frame.
+     * @return - true iff a frame of that type was received.
+     */
+    public boolean receiveUntil(int type, int timeoutMillis) throws IOException {
+        int received;
+        while ((received = receive(timeoutMillis)) != 0)
+            if (received == type) return true;
+        return false;
+    }
+
+    public int card(int slot) {
+        return cards[slot];
+    }
+
+    public boolean hasToken(int player, int slot) {
+        return tokens[player][slot];
+    }
+
+    public int score(int player) {
+        return scores[player];
+    }
+
+    public int[] winners() {
+        return winners.clone();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,447 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Lets remote clients join the game as players over TCP. All the connections are served by a single thread using a
+ * selector, which only does I/O: the key presses are queued to the player threads (see Player::submitKeyPress), like the
+ * keyboard's. Every connected client takes over one of the human players and receives the changes to the table (cards,
+ * tokens, scores etc.) as they happen.
+ * <p>
+ * The server is a user interface decorator: every call is passed on to the wrapped user interface (if any) and then
+ * broadcast to the clients. Each client has a fixed size outbound buffer that is reused for its whole connection, a
+ * client that falls behind by more than config.serverOutboundMessages messages is disconnected.
+ * <p>
+ * Protocol: every message is a frame of FRAME_SIZE bytes, a type byte followed by two big-endian ints (unused values
+ * are 0). The client only sends PRESS(slot) frames, all the other types are sent by the server. On connection the
+ * server sends WELCOME(player, players), TABLE(tableSize) and the current cards, tokens and scores.
+ */
+public class RemotePlayerServer implements UserInterface {
+
+    public static final int FRAME_SIZE = 9;
+
+    public static final byte WELCOME = 1;
+    public static final byte TABLE = 2;
+    public static final byte PLACE_CARD = 3;
+    public static final byte REMOVE_CARD = 4;
+    public static final byte PLACE_TOKEN = 5;
+    public static final byte REMOVE_TOKEN = 6;
+    public static final byte REMOVE_TOKENS = 7;
+    public static final byte COUNTDOWN = 8;
+    public static final byte ELAPSED = 9;
+    public static final byte FREEZE = 10;
+    public static final byte SCORE = 11;
+    public static final byte WINNER = 12;
+    public static final byte PRESS = 13;
+
+    /**
+     * The value of REMOVE_TOKENS(slot) that stands for all the slots.
+     */
+    public static final int ALL_SLOTS = -1;
+
+    /**
+     * The number of inbound frames read from a client at once.
+     */
+    private static final int INBOUND_FRAMES = 64;
+
+    private final Logger logger;
+    private final Config config;
+    private final Player[] players;
+
+    /**
+     * The wrapped user interface (may be null).
+     */
+    private final UserInterface ui;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * The I/O thread.
+     */
+    private final Thread thread;
+
+    /**
+     * True iff a wakeup of the selector was requested and not handled yet (to avoid a wakeup per message).
+     */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    /**
+     * The client controlling each player (null if none). Guarded by this.
+     */
+    private final Client[] playerClients;
+
+    /**
+     * The connected clients. Guarded by this.
+     */
+    private final List<Client> clients = new ArrayList<>();
+
+    /**
+     * The current game state, sent to clients when they join. Guarded by this.
+     */
+    private final int[] cards;
+    private final boolean[][] tokens;
+    private final int[] scores;
+
+    /**
+     * A connected client.
+     */
+    private class Client {
+        final SocketChannel channel;
+        final int player;
+        final ByteBuffer in = ByteBuffer.allocateDirect(FRAME_SIZE * INBOUND_FRAMES);
+        final ByteBuffer out; // guarded by the client object, in write mode between flushes
+        SelectionKey key;
+        boolean overflow;
+
+        Client(SocketChannel channel, int player) {
+            this.channel = channel;
+            this.player = player;
+            out = ByteBuffer.allocateDirect(FRAME_SIZE * config.serverOutboundMessages);
+        }
+
+        /**
+         * Queues a frame, marks the client as overflowing if its buffer is full.
+         */
+        synchronized boolean send(byte type, int a, int b) {
+            if (overflow) return false;
+            if (out.remaining() < FRAME_SIZE) {
+                overflow = true;
+                return false;
+            }
+            boolean wasEmpty = out.position() == 0;
+            out.put(type).putInt(a).putInt(b);
+            return wasEmpty;
+        }
+
+        /**
+         * Writes as much of the queued frames as the socket accepts (called by the I/O thread).
+         *
+         * @return - true iff all the queued frames were written.
+         */
+        synchronized boolean flush() throws IOException {
+            if (overflow) throw new IOException("outbound buffer overflow");
+            if (out.position() == 0) return true;
+            out.flip();
+            try {
+                channel.write(out);
+                return !out.hasRemaining();
+            } finally {
+                out.compact();
+            }
+        }
+    }
+
+    /**
+     * Opens the server socket. Call start to begin serving clients.
+     *
+     * @param logger  - the logger.
+     * @param config  - the game configuration.
+     * @param players - the players (filled by the time clients connect).
+     * @param ui      - the user interface to pass the calls on to (may be null).
+     * @param port    - the TCP port to listen on (0 for any free port).
+     */
+    public RemotePlayerServer(Logger logger, Config config, Player[] players, UserInterface ui, int port) throws IOException {
+        this.logger = logger;
+        this.config = config;
+        this.players = players;
+        this.ui = ui;
+        playerClients = new Client[config.players];
+        cards = new int[config.tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new boolean[config.players][config.tableSize];
+        scores = new int[config.players];
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::serve, "remote-players");
+    }
+
+    /**
+     * @return - the TCP port the server listens on.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void start() {
+        ThreadLogger.logStart(logger, thread.getName());
+        thread.start();
+    }
+
+    /**
+     * Disconnects all the clients and stops the I/O thread.
+     *
+     * @param timeoutMillis - the maximal time to wait for the I/O thread to stop.
+     * @return - true iff the I/O thread stopped in time.
+     */
+    public boolean stop(long timeoutMillis) throws InterruptedException {
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+        thread.join(Math.max(1, timeoutMillis));
+        return !thread.isAlive();
+    }
+
+    /**
+     * The main loop of the I/O thread.
+     */
+    private void serve() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Client client = (Client) key.attachment();
+                        try {
+                            if (key.isReadable()) read(client);
+                            if (key.isValid() && key.isWritable()) write(client);
+                        } catch (CancelledKeyException e) { // cancelled since the check (e.g. the selector is closing)
+                            close(client);
+                        }
+                    }
+                }
+                for (Client client : connectedClients())
+                    write(client);
+            }
+        } catch (IOException | ClosedSelectorException | CancelledKeyException e) {
+            if (selector.isOpen()) logger.severe("remote players server failed: " + e.getMessage());
+        } finally {
+            for (Client client : connectedClients())
+                close(client);
+            try {
+                serverChannel.close();
+            } catch (IOException ignored) {
+            }
+            ThreadLogger.logStop(logger, thread.getName());
+        }
+    }
+
+    private synchronized Client[] connectedClients() {
+        return clients.toArray(new Client[0]);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        synchronized (this) {
+            int player = 0;
+            while (player < config.humanPlayers && playerClients[player] != null) player++;
+            if (player == config.humanPlayers) {
+                logger.severe("remote player rejected, all human players are taken");
+                channel.close();
+                return;
+            }
+
+            Client client = new Client(channel, player);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            playerClients[player] = client;
+            clients.add(client);
+            logger.info("remote player " + channel.getRemoteAddress() + " joined as player " + (player + 1));
+
+            // the current state of the game
+            client.send(WELCOME, player, config.players);
+            client.send(TABLE, config.tableSize, 0);
+            for (int slot = 0; slot < cards.length; slot++)
+                if (cards[slot] >= 0) client.send(PLACE_CARD, cards[slot], slot);
+            for (int p = 0; p < tokens.length; p++)
+                for (int slot = 0; slot < tokens[p].length; slot++)
+                    if (tokens[p][slot]) client.send(PLACE_TOKEN, p, slot);
+            for (int p = 0; p < scores.length; p++)
+                client.send(SCORE, p, scores[p]);
+        }
+    }
+
+    private void read(Client client) {
+        try {
+            if (client.channel.read(client.in) < 0) {
+                close(client);
+                return;
+            }
+            client.in.flip();
+            while (client.in.remaining() >= FRAME_SIZE) {
+                byte type = client.in.get();
+                int a = client.in.getInt();
+                client.in.getInt();
+                if (type == PRESS && a >= 0 && a < config.tableSize && players[client.player] != null)
+                    players[client.player].submitKeyPress(a, System.nanoTime()); // handled on the player thread
+            }
+            client.in.compact();
+        } catch (IOException e) {
+            close(client);
+        }
+    }
+
+    private void write(Client client) {
+        if (!client.key.isValid()) return;
+        try {
+            boolean done = client.flush();
+            int ops = done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+            if (client.key.interestOps() != ops) client.key.interestOps(ops);
+        } catch (IOException e) {
+            logger.severe("remote player " + (client.player + 1) + " disconnected: " + e.getMessage());
+            close(client);
+        } catch (CancelledKeyException e) { // the key was cancelled after the check (e.g. the selector is closing)
+            close(client);
+        }
+    }
+
+    private void close(Client client) {
+        synchronized (this) {
+            clients.remove(client);
+            if (playerClients[client.player] == client) playerClients[client.player] = null;
+        }
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {
+        }
+        logger.info("remote player " + (client.player + 1) + " left");
+    }
+
+    /**
+     * Queues a frame for all the clients and wakes the I/O thread up to send it.
+     * Must be called while holding the server lock (so all clients see the same order of frames).
+     */
+    private void broadcast(byte type, int a, int b) {
+        boolean wakeup = false;
+        for (Client client : clients)
+            wakeup |= client.send(type, a, b);
+        if (wakeup && wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        if (ui != null) ui.placeCard(card, slot);
+        synchronized (this) {
+            cards[slot] = card;
+            broadcast(PLACE_CARD, card, slot);
+        }
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        if (ui != null) ui.removeCard(slot);
+        synchronized (this) {
+            cards[slot] = -1;
+            broadcast(REMOVE_CARD, slot, 0);
+        }
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        if (ui != null) ui.placeToken(player, slot);
+        synchronized (this) {
+            tokens[player][slot] = true;
+            broadcast(PLACE_TOKEN, player, slot);
+        }
+    }
+
+    @Override
+    public void removeTokens() {
+        if (ui != null) ui.removeTokens();
+        synchronized (this) {
+            for (boolean[] playerTokens : tokens) Arrays.fill(playerTokens, false);
+            broadcast(REMOVE_TOKENS, ALL_SLOTS, 0);
+        }
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        if (ui != null) ui.removeTokens(slot);
+        synchronized (this) {
+            for (boolean[] playerTokens : tokens) playerTokens[slot] = false;
+            broadcast(REMOVE_TOKENS, slot, 0);
+        }
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        if (ui != null) ui.removeToken(player, slot);
+        synchronized (this) {
+            tokens[player][slot] = false;
+            broadcast(REMOVE_TOKEN, player, slot);
+        }
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        if (ui != null) ui.setCountdown(millies, warn);
+        synchronized (this) {
+            broadcast(COUNTDOWN, (int) millies, warn ? 1 : 0);
+        }
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+        synchronized (this) {
+            broadcast(ELAPSED, (int) millies, 0);
+        }
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (ui != null) ui.setFreeze(player, millies);
+        synchronized (this) {
+            broadcast(FREEZE, player, (int) millies);
+        }
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        if (ui != null) ui.setScore(player, score);
+        synchronized (this) {
+            scores[player] = score;
+            broadcast(SCORE, player, score);
+        }
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (ui != null) ui.announceWinner(players);
+        synchronized (this) {
+            for (int player : players)
+                broadcast(WINNER, player, players.length);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+
+    @Override
+    public boolean cardsShown() {
+        return ui == null || ui.cardsShown();
+    }
+}
@@ -0,0 +1,141 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Stops the game components when the game ends and records how long each phase took. The phases run once, in the
+ * reverse order of their registration (a component is registered when it starts, so it stops before the components it
+ * depends on), and share one time budget: each phase is given the time left of the budget (but at least
+ * MIN_PHASE_MILLIS, so the quick phases such as flushing the logs still run after a slow one).
+ * <p>
+ * Each phase runs on its own daemon thread that the coordinator waits for at most the phase's timeout (and a short
+ * grace), so a phase that does not honour its timeout (e.g. a join without a timeout) is abandoned and delays the exit
+ * by a bounded time.
+ */
+public class ShutdownCoordinator {
+
+    /**
+     * Stops a component.
+     */
+    public interface Phase {
+
+        /**
+         * @param timeoutMillis - the maximal time the phase should take.
+         * @return - true iff the component stopped in time.
+         */
+        boolean run(long timeoutMillis) throws InterruptedException, IOException;
+    }
+
+    /**
+     * The minimal time a phase is given, even when the budget is used up.
+     */
+    static final long MIN_PHASE_MILLIS = 100;
+
+    /**
+     * The time a phase may take beyond its timeout before it is abandoned (a phase that honours its timeout returns
+     * a little after it).
+     */
+    private static final long GRACE_MILLIS = 50;
+
+    private final Logger logger;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * The recorded phases as "name: millis" strings, in the order they ran.
+     */
+    private final List<String> report = new ArrayList<>();
+
+    private boolean started;
+
+    public ShutdownCoordinator(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Registers a component to stop (after the components registered later).
+     */
+    public synchronized void register(String name, Phase phase) {
+        names.add(name);
+        phases.add(phase);
+    }
+
+    /**
+     * Interrupts a thread (e.g. to end a wait before the shutdown) unless the shutdown already started, so the
+     * interrupt never cuts a phase short.
+     */
+    public synchronized void interruptUnlessStarted(Thread thread) {
+        if (!started) thread.interrupt();
+    }
+
+    /**
+     * Runs the phases (only the first call does).
+     *
+     * @param budgetMillis - the maximal time all the phases together should take.
+     * @return - true iff all the phases completed in time.
+     */
+    public boolean shutdown(long budgetMillis) {
+        synchronized (this) {
+            if (started) return true;
+            started = true;
+        }
+        Thread.interrupted(); // an interrupt that ended the game must not cut the phases short
+        boolean inTime = true;
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        for (int i = phases.size() - 1; i >= 0; i--) {
+            long phaseStart = System.nanoTime();
+            long timeout = Math.max(MIN_PHASE_MILLIS, (deadline - phaseStart) / 1_000_000L);
+            boolean done = run(names.get(i), phases.get(i), timeout);
+            String phase = names.get(i) + ": " + millisSince(phaseStart) + " ms" + (done ? "" : " (not completed)");
+            synchronized (this) {
+                report.add(phase);
+            }
+            if (done) logger.info("shutdown phase " + phase);
+            else logger.warning("shutdown phase " + phase);
+            inTime &= done;
+        }
+        logger.info("shutdown: " + millisSince(start) + " ms");
+        return inTime;
+    }
+
+    /**
+     * Runs a phase on its own thread and waits for it at most its timeout (and the grace).
+     *
+     * @return - true iff the phase completed in time.
+     */
+    private boolean run(String name, Phase phase, long timeoutMillis) {
+        FutureTask<Boolean> task = new FutureTask<>(() -> phase.run(timeoutMillis));
+        Thread thread = new Thread(task, "shutdown-" + name);
+        thread.setDaemon(true); // an abandoned phase does not keep the process alive
+        thread.start();
+        try {
+            return task.get(timeoutMillis + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warning("shutdown phase " + name + " did not return in " + timeoutMillis + " ms, abandoned");
+            return false;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof InterruptedException))
+                logger.warning("shutdown phase " + name + " failed: " + e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    public synchronized String[] getPhases() {
+        return report.toArray(new String[0]);
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,98 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Records how long each phase of the game startup took. The main thread runs its phases one after another (they
+ * depend on each other: the logger, the configuration, the game entities etc.), while the background phases (e.g.
+ * building the window) overlap them; the background phases are marked so in the report.
+ */
+public class StartupTimer {
+
+    /**
+     * The time the startup began (in nanoseconds).
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * The recorded phases as "name: millis" strings, in order of completion.
+     */
+    private final List<String> phases = new ArrayList<>();
+
+    /**
+     * The total time of the main thread phases (in milliseconds). Guarded by this.
+     */
+    private long mainThreadMillis;
+
+    /**
+     * The time from the start until the game became playable (-1 if it did not yet).
+     */
+    private volatile long timeToPlayableMillis = -1;
+
+    /**
+     * @return - the current time to pass to phaseEnded when the phase ends.
+     */
+    public long phaseStarted() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a phase of the main thread that has just ended.
+     *
+     * @param name       - the phase name.
+     * @param phaseStart - the value returned by phaseStarted when the phase started.
+     */
+    public synchronized void phaseEnded(String name, long phaseStart) {
+        long millis = millisSince(phaseStart);
+        mainThreadMillis += millis;
+        phases.add(name + ": " + millis + " ms");
+    }
+
+    /**
+     * Records a phase that has just ended on another thread, overlapping the main thread phases.
+     *
+     * @param name       - the phase name.
+     * @param phaseStart - the value returned by phaseStarted when the phase started.
+     */
+    public synchronized void backgroundPhaseEnded(String name, long phaseStart) {
+        phases.add(name + ": " + millisSince(phaseStart) + " ms (background)");
+    }
+
+    /**
+     * @return - the total time of the main thread phases (in milliseconds).
+     */
+    public synchronized long getMainThreadMillis() {
+        return mainThreadMillis;
+    }
+
+    /**
+     * Records that the game became playable (i.e. the window is showing and the first cards were dealt).
+     */
+    public void playable() {
+        timeToPlayableMillis = millisSince(start);
+    }
+
+    public long getTimeToPlayableMillis() {
+        return timeToPlayableMillis;
+    }
+
+    public synchronized String[] getPhases() {
+        return phases.toArray(new String[0]);
+    }
+
+    /**
+     * Logs the recorded phases and the time to playable.
+     */
+    public void log(Logger logger) {
+        for (String phase : getPhases())
+            logger.info("startup phase " + phase);
+        logger.info("startup main thread phases (sequential): " + getMainThreadMillis() + " ms");
+        logger.info("time to playable: " + timeToPlayableMillis + " ms");
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000L;
+    }
+}
@@ -24,6 +24,18 @@ public class ThreadLogger extends Thread {
         }
     }
 
+    /**
+     * Waits at most timeoutMillis for the thread to stop.
+     *
+     * @return - true iff the thread stopped.
+     */
+    public boolean joinWithLog(long timeoutMillis) throws InterruptedException {
+        join(Math.max(1, timeoutMillis));
+        if (isAlive()) return false;
+        logStop(logger, getName());
+        return true;
+    }
+
     public static void logStart(Logger logger, String name) {
         logger.info("thread " + name + " starting.");
     }
@@ -84,4 +84,12 @@ public interface UserInterface {
      * Programmatically closes the window.
      */
     void dispose();
+
+    /**
+     * @return - true iff all the card changes made so far are on the screen (the players may only place tokens then).
+     * A user interface that shows the changes at once always returns true.
+     */
+    default boolean cardsShown() {
+        return true;
+    }
 }
@@ -9,16 +9,38 @@ public class UserInterfaceDecorator implements UserInterface {
 
     private final Logger logger;
     private final Util util;
-    private final UserInterface ui;
+    private volatile UserInterface ui;
 
     public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
-        this.ui = ui;
+        this(logger, util);
+        attach(ui);
+    }
+
+    /**
+     * Creates a decorator without a user interface, for when the user interface is still being created (see attach).
+     */
+    public UserInterfaceDecorator(Logger logger, Util util) {
         this.logger = logger;
         this.util = util;
+    }
+
+    /**
+     * Sets the decorated user interface.
+     *
+     * @param ui - the user interface, or null to run without one.
+     */
+    public void attach(UserInterface ui) {
+        this.ui = ui;
 
         if (ui == null) System.out.println("running without a user interface. Check logs.");
     }
 
+    @Override
+    public boolean cardsShown() {
+        UserInterface current = ui;
+        return current == null || current.cardsShown();
+    }
+
     @Override
     public void placeCard(int card, int slot) {
         logger.severe("placing card " + card + " in slot " + slot);
@@ -0,0 +1,125 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A user interface without a window (e.g. for a server or a benchmark): every call only increments the counter of its
+ * method, so the game threads pay almost nothing for it. The counts are reported at the end of the game.
+ * Thread safe.
+ */
+public class UserInterfaceHeadless implements UserInterface {
+
+    /**
+     * The methods of the user interface (the counters are indexed by the ordinals).
+     */
+    public enum Method {
+        PLACE_CARD,
+        REMOVE_CARD,
+        PLACE_TOKEN,
+        REMOVE_TOKENS,
+        REMOVE_SLOT_TOKENS,
+        REMOVE_TOKEN,
+        SET_COUNTDOWN,
+        SET_ELAPSED,
+        SET_FREEZE,
+        SET_SCORE,
+        ANNOUNCE_WINNER,
+        DISPOSE
+    }
+
+    private static final Method[] METHODS = Method.values();
+
+    private final LongAdder[] calls = new LongAdder[METHODS.length];
+
+    public UserInterfaceHeadless() {
+        for (int i = 0; i < calls.length; i++)
+            calls[i] = new LongAdder();
+    }
+
+    /**
+     * @return - the number of calls to a method so far.
+     */
+    public long getCalls(Method method) {
+        return calls[method.ordinal()].sum();
+    }
+
+    /**
+     * @return - the total number of calls so far.
+     */
+    public long getCalls() {
+        long total = 0;
+        for (LongAdder counter : calls)
+            total += counter.sum();
+        return total;
+    }
+
+    /**
+     * @return - a line per method that was called, with the number of calls.
+     */
+    public String[] report() {
+        return Arrays.stream(METHODS).filter(method -> getCalls(method) > 0)
+                .map(method -> method.name().toLowerCase() + ": " + getCalls(method) + " calls")
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        calls[Method.PLACE_CARD.ordinal()].increment();
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        calls[Method.REMOVE_CARD.ordinal()].increment();
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        calls[Method.PLACE_TOKEN.ordinal()].increment();
+    }
+
+    @Override
+    public void removeTokens() {
+        calls[Method.REMOVE_TOKENS.ordinal()].increment();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        calls[Method.REMOVE_SLOT_TOKENS.ordinal()].increment();
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        calls[Method.REMOVE_TOKEN.ordinal()].increment();
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        calls[Method.SET_COUNTDOWN.ordinal()].increment();
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        calls[Method.SET_ELAPSED.ordinal()].increment();
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        calls[Method.SET_FREEZE.ordinal()].increment();
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        calls[Method.SET_SCORE.ordinal()].increment();
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        calls[Method.ANNOUNCE_WINNER.ordinal()].increment();
+    }
+
+    @Override
+    public void dispose() {
+        calls[Method.DISPOSE.ordinal()].increment();
+    }
+}
@@ -0,0 +1,166 @@
+package bguspl.set;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Animates the cards on the screen: the game state changes immediately, and this decorator replays the card and token
+ * updates to the decorated user interface on its own thread, at most one card update per table delay (see
+ * Config::tableDelayMillis). The updates keep their order; the timer, freeze and score updates are not delayed.
+ * Until the card updates are all shown the pacer reports that the cards are not shown (see cardsShown), so the dealer
+ * keeps the table closed, and it runs the caught up action (e.g. waking the dealer) when they are.
+ */
+public class UserInterfacePacer implements UserInterface, Runnable {
+
+    private final UserInterface ui;
+
+    /**
+     * The minimal time between two card updates (read for every update, so it may change while the game runs).
+     */
+    private final LongSupplier delayMillis;
+
+    /**
+     * The card and token updates waiting to be shown.
+     */
+    private final BlockingQueue<Update> updates = new LinkedBlockingQueue<>();
+
+    /**
+     * The number of card updates queued or being shown.
+     */
+    private final AtomicInteger pendingCards = new AtomicInteger();
+
+    /**
+     * Runs on the pacer thread whenever the last pending card update was shown.
+     */
+    private volatile Runnable caughtUp = () -> {
+    };
+
+    private final ThreadLogger thread;
+
+    /**
+     * A user interface update, paced iff it places or removes a card.
+     */
+    private static class Update {
+        final boolean paced;
+        final Runnable action;
+
+        Update(boolean paced, Runnable action) {
+            this.paced = paced;
+            this.action = action;
+        }
+    }
+
+    public UserInterfacePacer(Logger logger, UserInterface ui, LongSupplier delayMillis) {
+        this.ui = ui;
+        this.delayMillis = delayMillis;
+        thread = new ThreadLogger(this, "ui-pacer", logger);
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.startWithLog();
+    }
+
+    /**
+     * Sets the action to run whenever the cards on the screen caught up with the game.
+     */
+    public void onCaughtUp(Runnable action) {
+        caughtUp = action;
+    }
+
+    @Override
+    public void run() {
+        long lastCard = Long.MIN_VALUE / 2; // the time the last card update was shown
+        try {
+            while (true) {
+                Update update = updates.take();
+                if (update.paced) {
+                    long wait = lastCard + delayMillis.getAsLong() - System.currentTimeMillis();
+                    if (wait > 0) Thread.sleep(wait);
+                    lastCard = System.currentTimeMillis();
+                }
+                update.action.run();
+                if (update.paced && pendingCards.decrementAndGet() == 0) caughtUp.run();
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * @return - the number of updates waiting to be shown.
+     */
+    public int getBacklog() {
+        return updates.size();
+    }
+
+    @Override
+    public boolean cardsShown() {
+        return pendingCards.get() == 0;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        pendingCards.incrementAndGet();
+        updates.add(new Update(true, () -> ui.placeCard(card, slot)));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        pendingCards.incrementAndGet();
+        updates.add(new Update(true, () -> ui.removeCard(slot)));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        updates.add(new Update(false, () -> ui.placeToken(player, slot)));
+    }
+
+    @Override
+    public void removeTokens() {
+        updates.add(new Update(false, ui::removeTokens));
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        updates.add(new Update(false, () -> ui.removeTokens(slot)));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        updates.add(new Update(false, () -> ui.removeToken(player, slot)));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        thread.interrupt();
+        ui.dispose();
+    }
+}
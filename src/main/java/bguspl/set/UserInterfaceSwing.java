@@ -2,14 +2,17 @@ package bguspl.set;
 
 import bguspl.set.ex.Player;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 
@@ -61,9 +64,11 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         setTitle("Set Card Game");
         setLocationRelativeTo(null);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // the game shuts down on its own (see Main::xButtonPressed)
 
-        addKeyListener(new InputManager(logger, config, players));
+        InputManager input = new InputManager(logger, config, players);
+        addKeyListener(input);
+        addFocusListener(input);
         addWindowListener(new WindowManager());
 
         EventQueue.invokeLater(() -> setVisible(true));
@@ -112,27 +117,32 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             URL imageResource = getClass().getClassLoader().getResource(filename);
             if (imageResource == null)
                 throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
+            try {
+                return ImageIO.read(imageResource);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         private GamePanel() {
 
-            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
+            setPreferredSize(new Dimension((config.columns + config.overflowColumns) * config.cellWidth, config.rows * config.cellHeight));
 
             // init deck and load all pictures from png files
             assert config.featureSize < 10; // otherwise there will be naming conflicts
 
-            // load the image resources
+            // load the image resources (decoded in parallel, this is most of the startup time)
             deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
+            IntStream.range(0, config.deckSize).parallel().forEach(i ->
+                    deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png"));
             emptyCard = loadImageResource("cards/empty_card.png");
 
-            grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
+            int columns = config.columns + config.overflowColumns;
+            grid = new Image[config.rows][columns];
+            tokenText = new JLabel[config.rows][columns];
+            playerTokens = new boolean[config.players][config.rows][columns];
             for (int row = 0; row < config.rows; row++) {
-                for (int column = 0; column < config.columns; column++) {
+                for (int column = 0; column < columns; column++) {
                     // init the cards on the table grid as empty cards
                     grid[row][column] = emptyCard;
 
@@ -149,24 +159,24 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
             grid[row][column] = deck[card];
             validate();
             repaint();
         }
 
         private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
             grid[row][column] = emptyCard;
             validate();
             repaint();
         }
 
         private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
             playerTokens[player][row][column] = true;
             tokenText[row][column].setText(generatePlayersTokenText(row, column));
         }
@@ -177,8 +187,8 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
             for (int player = 0; player < playerTokens.length; player++) {
                 playerTokens[player][row][column] = false;
                 tokenText[row][column].setText(generatePlayersTokenText(row, column));
@@ -186,8 +196,8 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
             playerTokens[player][row][column] = false;
             tokenText[row][column].setText(generatePlayersTokenText(row, column));
         }
@@ -207,7 +217,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         public void paintComponent(Graphics g) {
             // draw card images
             for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
+                for (int column = 0; column < grid[row].length; column++)
                     g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
         }
     }
@@ -0,0 +1,223 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A clock that does not wait: a game with long timeouts runs as fast as the computer allows (e.g. for simulations and
+ * tests). The time moves either when a driver calls advanceTo (as Simulation does, from a single thread) or by itself,
+ * as in a discrete event simulation: a thread that sleeps or waits on the clock registers its deadline, and once every
+ * registered thread (see register) is blocked in sleep or await, the time moves to the earliest pending deadline and
+ * wakes the threads that are due. So the threads wake in the order of their deadlines, whatever the order they went to
+ * sleep in, and the time a thread wakes at does not depend on the real time.
+ * <p>
+ * A registered thread that did not start yet, or that is blocked elsewhere (e.g. on a queue), counts as running, so the
+ * time waits for it; a thread that ended (or was unregistered) no longer counts. A thread waiting on a monitor counts as
+ * blocked until it owns the monitor again, even if another thread notified it. Thread safe.
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * The real time after which a blocked thread checks again whether a registered thread ended without telling the
+     * clock. This only keeps the clock alive, the time moves at the same points whatever the real time.
+     */
+    static final long CHECK_MILLIS = 50;
+
+    /**
+     * A thread sleeping (or waiting on a monitor) until a deadline.
+     */
+    private static class Sleeper {
+        final Thread thread;
+        final long deadline;
+        final Object monitor; // null if the thread sleeps on the clock
+
+        Sleeper(Thread thread, long deadline, Object monitor) {
+            this.thread = thread;
+            this.deadline = deadline;
+            this.monitor = monitor;
+        }
+    }
+
+    /**
+     * The current time. Guarded by this.
+     */
+    private long now;
+
+    /**
+     * The registered threads, and the ones blocked in sleep or await. Guarded by this.
+     */
+    private final Set<Thread> threads = new HashSet<>();
+    private final List<Sleeper> sleepers = new ArrayList<>();
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * @param start - the initial time in milliseconds.
+     */
+    public VirtualClock(long start) {
+        now = start;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Sleeper sleeper = enter(null, millis);
+        try {
+            while (true) {
+                List<Object> due;
+                synchronized (this) {
+                    if (now >= sleeper.deadline) return;
+                    wait(CHECK_MILLIS);
+                    if (now >= sleeper.deadline) return;
+                    due = moveIfAllBlocked();
+                }
+                notifyMonitors(due);
+            }
+        } finally {
+            leave(sleeper);
+        }
+    }
+
+    /**
+     * Waits on the monitor until it is notified or the deadline passes (the clock notifies the monitor then, without
+     * holding its own lock, since the caller may hold other locks). The wait also ends after CHECK_MILLIS of real time,
+     * whatever the virtual time (callers check their condition again anyway).
+     */
+    @Override
+    public void await(Object monitor, long millis) throws InterruptedException {
+        Sleeper sleeper = enter(monitor, millis);
+        try {
+            synchronized (this) {
+                if (now >= sleeper.deadline) return;
+            }
+            monitor.wait(CHECK_MILLIS); // the caller owns the monitor, so the clock notifies it only once it waits
+        } finally {
+            leave(sleeper);
+        }
+    }
+
+    /**
+     * Moves the time forward to the given time (nothing happens if the time is already later), and wakes the threads
+     * that are due.
+     *
+     * @param time - the time in milliseconds.
+     */
+    public void advanceTo(long time) {
+        List<Object> due;
+        synchronized (this) {
+            due = time > now ? moveTo(time) : Collections.emptyList();
+        }
+        notifyMonitors(due);
+    }
+
+    /**
+     * Tells the clock that a thread uses it (the time does not move by itself while a registered thread runs).
+     * A thread is registered anyway when it first sleeps or waits on the clock, but a thread that is started by
+     * another one should be registered before it starts, so the time does not move before its first sleep.
+     */
+    @Override
+    public synchronized void register(Thread thread) {
+        threads.add(thread);
+    }
+
+    /**
+     * Tells the clock that a thread no longer uses it (e.g. when it ends), so the time may move without it.
+     */
+    @Override
+    public void unregister(Thread thread) {
+        List<Object> due;
+        synchronized (this) {
+            threads.remove(thread);
+            due = moveIfAllBlocked();
+        }
+        notifyMonitors(due);
+    }
+
+    /**
+     * Waits (in real time) until the time reaches the given time, e.g. for a test that lets the game threads run.
+     *
+     * @param time          - the time to wait for in milliseconds.
+     * @param timeoutMillis - the maximal real time to wait in milliseconds.
+     * @return - true iff the time reached the given time.
+     */
+    public synchronized boolean awaitTime(long time, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (now < time) {
+            long left = (deadline - System.nanoTime()) / 1_000_000L;
+            if (left <= 0) return false;
+            wait(left);
+        }
+        return true;
+    }
+
+    /**
+     * Registers the calling thread as blocked until a deadline, and moves the time if it was the last thread running.
+     */
+    private Sleeper enter(Object monitor, long millis) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        Sleeper sleeper;
+        List<Object> due;
+        synchronized (this) {
+            sleeper = new Sleeper(Thread.currentThread(), now + Math.max(0, millis), monitor);
+            threads.add(sleeper.thread);
+            sleepers.add(sleeper);
+            due = moveIfAllBlocked();
+        }
+        notifyMonitors(due);
+        return sleeper;
+    }
+
+    private synchronized void leave(Sleeper sleeper) {
+        sleepers.remove(sleeper);
+    }
+
+    /**
+     * Moves the time to the earliest pending deadline if every registered thread that did not end is blocked on the
+     * clock, unless a thread is due and did not wake up yet (so no thread misses its deadline).
+     *
+     * @return - the monitors of the waiting threads that are due (to be notified once the clock is unlocked).
+     */
+    private List<Object> moveIfAllBlocked() {
+        threads.removeIf(thread -> thread.getState() == Thread.State.TERMINATED);
+        for (Thread thread : threads)
+            if (!blocked(thread)) return Collections.emptyList();
+        long earliest = Long.MAX_VALUE;
+        for (Sleeper sleeper : sleepers)
+            earliest = Math.min(earliest, sleeper.deadline);
+        return earliest > now && earliest != Long.MAX_VALUE ? moveTo(earliest) : Collections.emptyList();
+    }
+
+    private boolean blocked(Thread thread) {
+        for (Sleeper sleeper : sleepers)
+            if (sleeper.thread == thread) return true;
+        return false;
+    }
+
+    private List<Object> moveTo(long time) {
+        now = time;
+        notifyAll(); // the sleeping threads, and the awaitTime callers
+        List<Object> due = new ArrayList<>();
+        for (Sleeper sleeper : sleepers)
+            if (sleeper.monitor != null && sleeper.deadline <= now) due.add(sleeper.monitor);
+        return due;
+    }
+
+    /**
+     * Wakes the threads that wait on the given monitors (called without holding the clock's lock).
+     */
+    private static void notifyMonitors(List<Object> monitors) {
+        for (Object monitor : monitors)
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+    }
+}
@@ -15,9 +15,7 @@ public class WindowManager implements WindowListener {
 
     @Override
     public void windowClosing(WindowEvent e) {
-        try {
-            Main.xButtonPressed();
-        } catch (InterruptedException ignored) {}
+        Main.xButtonPressed();
     }
 
     @Override
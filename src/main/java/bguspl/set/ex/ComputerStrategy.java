@@ -0,0 +1,45 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Decides which keys a computer player presses and when.
+ */
+public interface ComputerStrategy {
+
+    /**
+     * Decides on the next key press.
+     *
+     * @return - the slot to press, or -1 if no key should be pressed this time.
+     */
+    int nextSlot();
+
+    /**
+     * @return - the number of milliseconds to wait before the key press decided by the last call to nextSlot.
+     */
+    long delayMillis();
+
+    /**
+     * Creates the strategy configured for a computer player (see the ComputerStrategy configuration key).
+     *
+     * @param env    - the environment object.
+     * @param table  - the table object.
+     * @param player - the computer player.
+     * @param random - the source of randomness for the strategy.
+     * @return - the strategy object.
+     */
+    static ComputerStrategy create(Env env, Table table, Player player, Random random) {
+        String name = env.config.computerStrategy(player.id);
+        switch (name) {
+            case "smart":
+                return new SmartStrategy(env, table, player, random);
+            case "random":
+                return new RandomStrategy(env, random);
+            default:
+                env.logger.severe("unknown computer strategy " + name + " for player " + (player.id + 1) + ", using random.");
+                return new RandomStrategy(env, random);
+        }
+    }
+}
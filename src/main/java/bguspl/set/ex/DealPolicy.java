@@ -0,0 +1,105 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Chooses the cards the dealer places in the empty slots so that the table has at least the configured number of sets
+ * (see Config::dealTargetSets), instead of leaving a table with no set until the turn timeout.
+ * The cost of a deal is bounded: at most Config::dealMaxAttempts random draws are tested, and if none of them reaches
+ * the target one solver pass over the table and the deck looks for a set the empty slots can complete.
+ * Not thread safe (only used by the dealer thread).
+ */
+public class DealPolicy {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Counts the sets of each candidate deal.
+     */
+    private final SetSolver solver;
+
+    public DealPolicy(Env env, SetSolver solver) {
+        this.env = env;
+        this.solver = solver;
+    }
+
+    /**
+     * Draws cards from the deck for the empty slots of the table.
+     *
+     * @param table  - the cards on the table (negative entries for empty slots).
+     * @param count  - the number of cards to draw.
+     * @param deck   - the cards to draw from, the drawn cards are removed from it.
+     * @param random - the source of randomness for the draws.
+     * @return - the drawn cards (fewer than count if the deck runs out).
+     */
+    public int[] draw(int[] table, int count, IndexPool deck, Random random) {
+        count = Math.min(count, deck.size());
+        int target = env.config.dealTargetSets;
+        int attempts = target > 0 ? Math.max(1, env.config.dealMaxAttempts) : 1;
+
+        int[] candidate = new int[table.length + count]; // the table followed by the drawn cards
+        System.arraycopy(table, 0, candidate, 0, table.length);
+        int[] best = new int[count];
+        int bestSets = -1;
+        for (int attempt = 0; attempt < attempts && bestSets < target; ++attempt) {
+            for (int i = 0; i < count; ++i)
+                candidate[table.length + i] = deck.removeRandom(random);
+            int sets = target > 0 ? solver.countSets(candidate, target) : 0;
+            if (sets > bestSets) {
+                bestSets = sets;
+                System.arraycopy(candidate, table.length, best, 0, count);
+            }
+            for (int i = 0; i < count; ++i) // the cards go back until the best draw is known
+                deck.add(candidate[table.length + i]);
+        }
+
+        if (bestSets == 0 && count > 0) {
+            int[] forced = completeSet(table, count, deck);
+            if (forced != null) {
+                int n = 0;
+                for (int card : forced) {
+                    deck.remove(card);
+                    best[n++] = card;
+                }
+                while (n < count)
+                    best[n++] = deck.removeRandom(random);
+                env.logger.info("no set in " + attempts + " random draws, dealt a set on purpose");
+                return best;
+            }
+        }
+        for (int card : best)
+            deck.remove(card);
+        return best;
+    }
+
+    /**
+     * Looks for a set that the cards on the table and at most count cards from the deck make.
+     * Sets that use more table cards are found first.
+     *
+     * @return - the deck cards of the set, or null if there is no such set.
+     */
+    private int[] completeSet(int[] table, int count, IndexPool deck) {
+        int[] cards = new int[table.length + deck.size()];
+        System.arraycopy(table, 0, cards, 0, table.length);
+        deck.copyTo(cards, table.length);
+        int[][] found = new int[Math.max(1, env.config.dealMaxAttempts)][solver.setSize()];
+        int sets = solver.findSets(cards, found.length, found);
+        for (int i = 0; i < sets; ++i) {
+            int fromDeck = 0;
+            for (int position : found[i])
+                if (position >= table.length) fromDeck++;
+            if (fromDeck == 0 || fromDeck > count) continue;
+            int[] forced = new int[fromDeck];
+            int n = 0;
+            for (int position : found[i])
+                if (position >= table.length) forced[n++] = cards[position];
+            return forced;
+        }
+        return null;
+    }
+}
@@ -2,18 +2,29 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class manages the dealer's threads and data
  */
 public class Dealer implements Runnable {
 
+    /**
+     * The maximal time between two updates of the timer display.
+     */
+    static final long TIMER_TICK_MILLIS = 100;
+
     /**
      * The game environment object.
      */
@@ -26,9 +37,60 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The threads of the players, by player id (created when the dealer thread starts).
+     */
+    private Thread[] playerThreads;
+
+    /**
+     * The card ids that are left in the dealer's deck (not on the table and not removed from the game).
+     */
+    private final IndexPool deck;
+
+    /**
+     * The number of cards in the deck, updated whenever the deck changes (the deck itself is only used by the dealer
+     * thread, this count may be read by any thread).
+     */
+    private volatile int deckSize;
+
+    /**
+     * The base slots on the table that have no card.
+     */
+    private final IndexPool emptySlots;
+
+    /**
+     * The overflow slots on the table that have no card (see Config::overflowColumns).
+     */
+    private final IndexPool emptyOverflowSlots;
+
+    /**
+     * Used to draw cards from the deck and to choose their slots.
+     */
+    private final Random random;
+
+    /**
+     * Chooses the cards to deal so that the table has a set.
+     */
+    private final DealPolicy dealPolicy;
+
+    /**
+     * Prepares the deal of the next round in the background.
+     */
+    private final RoundPlanner roundPlanner;
+
+    /**
+     * Incremented whenever cards leave the game (a prepared round or a set check is valid for one version).
      */
-    private final List<Integer> deck;
+    private long cardsVersion;
+
+    /**
+     * The version of the cards in the game that hasSets was computed for (-1 if none).
+     */
+    private long checkedVersion = -1;
+
+    /**
+     * True iff there is a legal set among the cards in the game (as of checkedVersion).
+     */
+    private boolean hasSets;
 
     /**
      * True iff game should be terminated.
@@ -41,17 +103,50 @@ public class Dealer implements Runnable {
     private volatile boolean newRound;
 
     /**
-     * The list of random numbers used put cards in slots randomly
+     * list of frozen players
      */
-    private List<Integer> range = IntStream.range(0, 12).boxed().collect(Collectors.toList());
+    private ConcurrentLinkedQueue<FrozenPlayer> frozenPlayers;
 
     /**
-     * list of frozen players
+     * The statistics of each player in this game (added to the score board when the game ends).
      */
-    private ConcurrentLinkedQueue<FrozenPlayer> frozenPlayers;
+    private final ScoreBoard.Stats[] gameStats;
 
+    /**
+     * The players' statistics across games (null if they are not kept).
+     */
+    private ScoreBoard scoreBoard;
+
+    /**
+     * The time the cards were last dealt (the reaction times of the sets are measured from it).
+     */
+    private long dealtMillis;
+
+    /**
+     * The file the game is checkpointed to (null if it is not checkpointed).
+     */
+    private Path checkpointFile;
 
+    /**
+     * Writes the checkpoints in the background, so the play does not pause (only the latest pending checkpoint is
+     * kept).
+     */
+    private ThreadPoolExecutor checkpointWriter;
 
+    /**
+     * The time of the next periodic checkpoint.
+     */
+    private long nextCheckpointMillis;
+
+    /**
+     * True iff the game was terminated and checkpointed, so it will be resumed rather than ended.
+     */
+    private boolean suspended;
+
+    /**
+     * Released when the first cards were dealt (or the dealer finished without dealing).
+     */
+    private final CountDownLatch firstDeal = new CountDownLatch(1);
 
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
@@ -59,12 +154,39 @@ public class Dealer implements Runnable {
     private long reshuffleTime = Long.MAX_VALUE;
 
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, new Random(), true);
+    }
+
+    /**
+     * Creates a deterministic dealer (e.g. for a simulation): the deals depend only on the random seed, and the next
+     * round is prepared on the calling thread rather than in the background.
+     *
+     * @param random - the source of randomness for the deals.
+     */
+    public Dealer(Env env, Table table, Player[] players, Random random) {
+        this(env, table, players, random, false);
+    }
+
+    private Dealer(Env env, Table table, Player[] players, Random random, boolean background) {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        deck = new IndexPool(env.config.deckSize, true);
+        emptySlots = new IndexPool(env.config.tableSize, false);
+        emptyOverflowSlots = new IndexPool(env.config.tableSize, false);
+        for (int slot = 0; slot < env.config.tableSize; ++slot) { // the table may already hold some cards
+            Integer card = table.slotToCard[slot];
+            if (card == null) freeSlot(slot);
+            else deck.remove(card);
+        }
+        deckSize = deck.size();
+        this.random = random;
+        dealPolicy = new DealPolicy(env, table.solver);
+        roundPlanner = new RoundPlanner(env, table.solver, dealPolicy, random, background);
         newRound = true;
         frozenPlayers = new ConcurrentLinkedQueue<>();
+        gameStats = new ScoreBoard.Stats[players.length];
+        Arrays.setAll(gameStats, i -> new ScoreBoard.Stats());
     }
 
     /**
@@ -72,18 +194,23 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
-        for (Player player : players) {
-            Thread newPlayer = new Thread(player);
-            newPlayer.start();
+        env.clock.register(Thread.currentThread()); // a virtual time does not move while the dealer works
+        playerThreads = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            playerThreads[i] = env.threads.newThread("player", i, players[i]);
+            env.clock.register(playerThreads[i]); // until it started its ai thread (see Player::run)
+            playerThreads[i].start();
         }
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         while (!shouldFinish()) {
             placeCardsOnTable();
             timerLoop();
-            updateTimerDisplay(newRound);
-            removeAllCardsFromTable();
+            if (!terminate) endRound(); // a terminated game keeps its round for the checkpoint
         }
-        announceWinners();
+        closeCheckpoints();
+        finish();
+        stopPlayers();
+        env.clock.unregister(Thread.currentThread());
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -91,23 +218,71 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
+        while (!roundTimedOut()) {
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(newRound);
-            removeCardsFromTable();
-            placeCardsOnTable();
+            tick();
+            checkpointIfDue();
         }
     }
 
+    /**
+     * @return - true iff the game is terminated or the countdown of the current round is over.
+     */
+    boolean roundTimedOut() {
+        return terminate || env.clock.currentTimeMillis() >= reshuffleTime;
+    }
+
+    /**
+     * One step of the countdown: updates the timer and the frozen players, checks the claims and refills the table.
+     */
+    void tick() {
+        updateTimerDisplay(newRound);
+        removeCardsFromTable();
+        placeCardsOnTable();
+    }
+
+    /**
+     * Ends the current round (the cards of the next round are placed on the table).
+     */
+    void endRound() {
+        updateTimerDisplay(newRound);
+        removeAllCardsFromTable();
+    }
+
+    /**
+     * Ends the game and announces the winners.
+     */
+    void finish() {
+        roundPlanner.shutdown();
+        announceWinners();
+        firstDeal.countDown();
+    }
+
     /**
      * Called when the game should be terminated.
      */
     public void terminate() {
-        // TODO implement
-        for (Player player : players) {
-            player.terminate();
-        }
         terminate = true;
+        table.wakeDealer(); // the dealer stops the players when it leaves its loop (see stopPlayers)
+    }
+
+    /**
+     * Stops the player threads in the reverse order of their creation (each player stops its ai thread first), and
+     * waits at most Config::shutdownTimeoutMillis for all of them.
+     */
+    private void stopPlayers() {
+        long deadline = System.nanoTime() + env.config.shutdownTimeoutMillis * 1_000_000L;
+        for (int i = players.length - 1; i >= 0; i--) {
+            players[i].terminate();
+            try {
+                playerThreads[i].join(Math.max(1, (deadline - System.nanoTime()) / 1_000_000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (playerThreads[i].isAlive())
+                env.logger.warning("thread " + playerThreads[i].getName() + " did not stop in time");
+        }
     }
 
     /**
@@ -115,86 +290,192 @@ public class Dealer implements Runnable {
      *
      * @return true iff the game should be finished.
      */
-    private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+    boolean shouldFinish() {
+        if (terminate) return true;
+        if (checkedVersion != cardsVersion) { // otherwise the check was already done when the round was prepared
+            hasSets = table.solver.countSets(cardsInGame(), 1) > 0;
+            checkedVersion = cardsVersion;
+        }
+        return !hasSets;
+    }
+
+    /**
+     * @return - the cards that are still in the game (on the table or in the deck), -1 entries are padding.
+     */
+    private int[] cardsInGame() {
+        int[] cards = new int[env.config.deckSize + env.config.tableSize];
+        table.snapshot(cards);
+        deck.copyTo(cards, env.config.tableSize);
+        Arrays.fill(cards, env.config.tableSize + deck.size(), cards.length, -1);
+        return cards;
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
+     * All the pending claims are checked in one pass, in the order they arrived. A claim that uses a card taken by an
+     * earlier claim in the same pass (or whose cards are no longer on the table) is rejected without a penalty. The
+     * cards of all the legal sets are then removed from the table together.
      */
-    private void removeCardsFromTable() {
-        // TODO implement
-        if (!table.playersToCheck.isEmpty()) {
-            int playerId = table.playersToCheck.remove();
+    void removeCardsFromTable() {
+        if (table.playersToCheck.isEmpty()) return;
+
+        boolean[] checked = new boolean[players.length];
+        boolean[] claimed = new boolean[env.config.deckSize]; // cards taken by an earlier claim in this pass
+        List<Integer> slotsToRemove = new ArrayList<>();
+        Integer playerId;
+        while ((playerId = table.playersToCheck.poll()) != null) {
             Player player = players[playerId];
-            int[] cards = new int[env.config.featureSize]; // create an array from the player list
-            int index = 0;
-            for (Integer slot : player.selectedSlots) {
-                try {
-                    cards[index] = table.slotToCard[slot];
-                    index++;
-                } catch (NullPointerException ignored){}
+            int[] cards = claimedCards(player);
+            boolean stale = checked[playerId] || cards == null;
+            for (int i = 0; !stale && i < cards.length; i++)
+                stale = claimed[cards[i]];
+            checked[playerId] = true;
+            if (stale) {
+                env.logger.info("player: " + playerId + " claim is no longer valid, rejected without penalty");
+                table.listener.claimRejected(playerId);
+                continue;
             }
-            if (env.util.testSet(cards)) {
-                table.canPlayerModifyTable = false; // a set was found,therefore we need to lock the board
-                env.logger.info("a set was found. locking board from modifications");
-                player.point();
-                for (int i = 0; i < cards.length; i++) {// removes the found cards from deck
-                    Integer slot = table.cardToSlot[cards[i]];
-                    if (slot != null) {
-                        try {
-                            Thread.sleep(env.config.tableDelayMillis);
-                            deck.remove(table.slotToCard[slot]);
-                        } catch (InterruptedException ignored) {
-                        }
-
-                        env.logger.info("card: " + table.slotToCard[slot] + " was removed from the deck");
-                        table.removeCard(slot);
-                        env.logger.info("current number of cards remain in deck: " + deck.size());
-                        env.logger.info("deck after change: " + deck);
-                    }
+
+            boolean legal = env.util.testSet(cards);
+            table.listener.claimChecked(playerId, legal);
+            if (legal) {
+                for (int card : cards) {
+                    claimed[card] = true;
+                    slotsToRemove.add(table.cardToSlot[card]);
                 }
-                newRound = true;
-                env.logger.info("player found set, setting newRound = true");
+                player.point();
+                gameStats[playerId].sets++;
+                gameStats[playerId].reaction(env.clock.currentTimeMillis() - dealtMillis);
+                freeze(playerId, env.config.pointFreezeMillis, false);
             } else {
-                frozenPlayers.add(new FrozenPlayer(playerId, System.currentTimeMillis() + env.config.penaltyFreezeMillis));
-                env.ui.setFreeze(playerId, env.config.penaltyFreezeMillis);
                 player.penalty();
+                gameStats[playerId].penalties++;
+                freeze(playerId, env.config.penaltyFreezeMillis, true);
             }
         }
+
+        if (!slotsToRemove.isEmpty()) {
+            table.canPlayerModifyTable = false; // a set was found,therefore we need to lock the board
+            env.logger.info("sets were found. locking board from modifications");
+            for (int slot : slotsToRemove)
+                env.logger.info("card: " + table.slotToCard[slot] + " was removed from the game");
+            table.removeCards(slotsToRemove);
+            cardsVersion++;
+            for (int slot : slotsToRemove)
+                freeSlot(slot);
+            for (Player player : players) // the tokens on the removed cards are gone
+                for (int slot : slotsToRemove)
+                    player.discardSlot(slot);
+            env.logger.info("current number of cards remain in deck: " + deck.size());
+            newRound = true;
+            env.logger.info("player found set, setting newRound = true");
+        }
+    }
+
+    /**
+     * Collects the cards a player placed tokens on.
+     *
+     * @param player - the player that claims a set.
+     * @return - the cards, or null if the player is not waiting for a check or does not have a token on a card for each
+     * card of a set.
+     */
+    private int[] claimedCards(Player player) {
+        int[] slots = player.claimedSlots();
+        if (slots == null || slots.length != env.config.featureSize) return null;
+        int[] cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            Integer card = table.slotToCard[slots[i]];
+            if (card == null) return null;
+            cards[i] = card;
+        }
+        return cards;
+    }
+
+    /**
+     * Freezes a player, the player becomes active again when the freeze time is over (see updateTimerDisplay).
+     *
+     * @param playerId - the player id.
+     * @param millis   - the freeze time in milliseconds.
+     * @param penalty  - true iff the player is penalized (otherwise it got a point).
+     */
+    private void freeze(int playerId, long millis, boolean penalty) {
+        frozenPlayers.add(new FrozenPlayer(playerId, env.clock.currentTimeMillis() + millis));
+        table.listener.playerFrozen(playerId, millis, penalty);
+        env.ui.setFreeze(playerId, millis);
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
+     * Only the empty slots are filled: each one gets a random card from the deck, so filling k slots takes O(k) time
+     * regardless of the deck size. The deal policy may redraw (a bounded number of times) so the table has a set.
+     * The cards for all the empty slots are placed together.
      */
-    private void placeCardsOnTable() {
-        // TODO implement
-        if (!deck.isEmpty() && newRound) {
+    void placeCardsOnTable() {
+        if (newRound) {
             updateTimerDisplay(newRound);
             table.canPlayerModifyTable = false; // notifies the players that the table can't be modified
             env.logger.info("players are not allowed to place tokens now");
-            Collections.shuffle(deck);
-            Collections.shuffle(range);
-            for (int i = 0; i < env.config.tableSize; i++) {
-                if (table.slotToCard[range.get(i)] == null && i < deck.size()) {
-                    table.placeCard(deck.get(i), range.get(i));
-                }
+            int[] drawn = dealPolicy.draw(table.snapshot(new int[env.config.tableSize]), emptySlots.size(), deck, random);
+            deckSize = deck.size();
+            List<Integer> cards = new ArrayList<>(drawn.length);
+            List<Integer> slots = new ArrayList<>(drawn.length);
+            for (int card : drawn) {
+                slots.add(emptySlots.removeRandom(random));
+                cards.add(card);
             }
+            table.placeCards(cards, slots);
+            expandTable();
+            roundPlanner.prepare(cardsInGame(), cardsVersion);
+            firstDeal.countDown();
+            if (env.config.hints) table.hints();
+            dealtMillis = env.clock.currentTimeMillis();
             newRound = false; // after cards were placed, it's not a new round anymore
             env.logger.info("newRound = false");
             env.logger.info("cards were placed on table");
         }
+        if (!env.ui.cardsShown()) return; // the table opens once the players see the cards (see UserInterfacePacer)
         table.canPlayerModifyTable = true; //allow the players to edit the board again
         env.logger.info("finished placing cards, players can place tokens again");
     }
 
+    /**
+     * Deals cards to the overflow slots (a set size at a time) while the cards on the table have no set, like the
+     * official rules do, instead of waiting for the turn timeout. The overflow slots are not refilled after a claim,
+     * so the table shrinks back as the sets are taken.
+     */
+    private void expandTable() {
+        int[] cards = table.snapshot(new int[env.config.tableSize]);
+        while (!emptyOverflowSlots.isEmpty() && !deck.isEmpty() && table.solver.countSets(cards, 1) == 0) {
+            int[] drawn = dealPolicy.draw(cards, Math.min(table.solver.setSize(), emptyOverflowSlots.size()), deck, random);
+            deckSize = deck.size();
+            List<Integer> overflowCards = new ArrayList<>(drawn.length);
+            List<Integer> slots = new ArrayList<>(drawn.length);
+            for (int card : drawn) {
+                int slot = emptyOverflowSlots.removeRandom(random);
+                cards[slot] = card;
+                slots.add(slot);
+                overflowCards.add(card);
+            }
+            env.logger.info("no set on the table, dealing " + drawn.length + " overflow cards");
+            table.placeCards(overflowCards, slots);
+        }
+    }
+
+    /**
+     * Marks a slot as empty.
+     */
+    private void freeSlot(int slot) {
+        if (slot < env.config.baseTableSize) emptySlots.add(slot);
+        else emptyOverflowSlots.add(slot);
+    }
+
     /**
      * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * The dealer is woken up as soon as a player claims a set (see Table::submitClaim).
      */
     private void sleepUntilWokenOrTimeout() {
-        // TODO implement
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            table.awaitClaim(TIMER_TICK_MILLIS);
         } catch (InterruptedException ignored) {
         }
     }
@@ -207,55 +488,74 @@ public class Dealer implements Runnable {
         if (reset) {
             env.logger.info("timer was reset");
             newRound = true; // set the new round to true
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-//            reshuffleTime = System.currentTimeMillis() + 5000; //for testing
+            reshuffleTime = env.clock.currentTimeMillis() + env.config.turnTimeoutMillis;
             env.ui.setElapsed(env.config.turnTimeoutMillis);
         } else {
-            if (reshuffleTime < System.currentTimeMillis()) { // in case we need to start a new round
+            if (reshuffleTime < env.clock.currentTimeMillis()) { // in case we need to start a new round
                 return;
             }
             if (!frozenPlayers.isEmpty()) { // handles frozen players
                 for (FrozenPlayer frozenPlayer : frozenPlayers) {
-                    env.ui.setFreeze(frozenPlayer.getId(), frozenPlayer.getFreezeTime() - System.currentTimeMillis());
-                    env.logger.info("Penalty current time: " + System.currentTimeMillis());
+                    long now = env.clock.currentTimeMillis();
+                    long remaining = frozenPlayer.remainingMillis(now);
+                    env.ui.setFreeze(frozenPlayer.getId(), remaining);
+                    env.logger.info("Penalty current time: " + now);
                     env.logger.info("Recorded frozen player freeze time: " + frozenPlayer.getFreezeTime());
-                    if (System.currentTimeMillis() - frozenPlayer.getFreezeTime() > frozenPlayer.getFreezeTime() - System.currentTimeMillis()) {
+                    if (remaining < 0) {
                         env.logger.info("player: " + frozenPlayer.getId() + " penalty ended");
                         frozenPlayers.remove(frozenPlayer); // remove the frozen player from list
                         players[frozenPlayer.getId()].setState(Player.State.ACTIVE);
+                        table.listener.playerUnfrozen(frozenPlayer.getId());
                     }
                 }
             }
         }
-        try {
-            env.ui.setElapsed(reshuffleTime - System.currentTimeMillis());
-            Thread.sleep(1);
-            env.logger.info("a time tick has occurred");
-        } catch (InterruptedException ignored) {
-        }
+        env.ui.setElapsed(reshuffleTime - env.clock.currentTimeMillis());
+        env.logger.info("a time tick has occurred");
     }
 
     /**
-     * Returns all the cards from the table to the deck.
+     * Returns all the cards from the table to the deck and deals the next round in a single table transition.
+     * The deal is normally prepared in the background during the round (see RoundPlanner), it is only computed here if
+     * the prepared one is not ready or cards left the game since it was prepared.
      */
     private void removeAllCardsFromTable() {
-        // TODO implement
         env.logger.info("wants to remove all cards, thus locking the table from modification");
+        table.listener.reshuffleStarted();
         table.canPlayerModifyTable = false;
-        for (int i = 0; i < env.config.tableSize; i++) {
-            table.removeCard(range.get(i));//removes a card from the table in a random order
-            env.ui.removeCard(range.get(i));
+        RoundPlanner.Plan plan = roundPlanner.take(cardsVersion);
+        if (plan == null) {
+            env.logger.info("the next round is not prepared, preparing it now");
+            plan = roundPlanner.plan(cardsInGame(), cardsVersion);
+        }
+        for (int slot = 0; slot < env.config.tableSize; ++slot) {
+            Integer card = table.slotToCard[slot];
+            if (card != null) deck.add(card);
         }
+        table.replaceCards(plan.cards);
+        for (int slot = 0; slot < env.config.tableSize; ++slot) {
+            if (plan.cards[slot] < 0) {
+                freeSlot(slot);
+                continue;
+            }
+            deck.remove(plan.cards[slot]);
+            emptySlots.remove(slot);
+            emptyOverflowSlots.remove(slot);
+        }
+        deckSize = deck.size();
+        checkedVersion = plan.version;
+        hasSets = plan.hasSets;
         for (Player player : players) { // clears all the players picks
             player.clearPlayerToken();
         }
         table.clearAllTokens();
+        table.listener.reshuffleFinished(table.countCards());
         newRound = true;
-        env.logger.info("finished clearing the board and all the players picks, starting a new round");
+        env.logger.info("finished replacing the cards and clearing all the players picks, starting a new round");
     }
 
     /**
-     * Check who is/are the winner/s and displays them.
+     * Check who is/are the winner/s and displays them, and logs the resources the game threads used.
      */
     private void announceWinners() {
         // TODO implement
@@ -280,8 +580,173 @@ public class Dealer implements Runnable {
             }
         }
         env.ui.announceWinner(winners);
+        if (scoreBoard != null && !suspended) recordGame(winners);
+        for (String role : env.threads.report())
+            env.logger.info("threads " + role);
+    }
+
+
+    /**
+     * Adds the statistics of the game to the score board.
+     *
+     * @param winners - the ids of the winners.
+     */
+    private void recordGame(int[] winners) {
+        for (int winner : winners)
+            gameStats[winner].wins = 1;
+        for (Player player : players) {
+            gameStats[player.id].games = 1;
+            String name = env.config.playerNames[player.id];
+            try {
+                scoreBoard.add(name, gameStats[player.id]);
+            } catch (IOException | IllegalStateException e) {
+                env.logger.warning("cannot record the game of " + name + ": " + e);
+            }
+        }
+        scoreBoard.flush(); // once for all the players
+    }
+
+    /**
+     * Keeps the players' statistics across games.
+     */
+    public void setScoreBoard(ScoreBoard scoreBoard) {
+        this.scoreBoard = scoreBoard;
     }
 
+    /**
+     * Checkpoints the game to a file periodically (see Config::checkpointMillis) and when it is terminated. The file is
+     * deleted when the game is over.
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        checkpointWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                env.threads.factory("checkpoint", true), new ThreadPoolExecutor.DiscardOldestPolicy());
+        nextCheckpointMillis = env.clock.currentTimeMillis() + env.config.checkpointMillis;
+    }
+
+    /**
+     * Captures the state of the game. Called by the dealer thread (the only thread that changes the cards), so the
+     * capture is consistent and takes time linear in the number of cards and players.
+     */
+    GameSnapshot snapshot() {
+        long now = env.clock.currentTimeMillis();
+        int[] cards = new int[deck.size()];
+        deck.copyTo(cards, 0);
+        GameSnapshot snapshot = new GameSnapshot(Math.max(0, reshuffleTime - now), cards,
+                table.snapshot(new int[env.config.tableSize]), players.length);
+        for (Player player : players) {
+            player.save(snapshot);
+            snapshot.stats[player.id] = new ScoreBoard.Stats();
+            snapshot.stats[player.id].add(gameStats[player.id]);
+        }
+        for (FrozenPlayer frozenPlayer : frozenPlayers)
+            snapshot.freezeMillis[frozenPlayer.getId()] = Math.max(1, frozenPlayer.remainingMillis(now));
+        return snapshot;
+    }
+
+    /**
+     * Resumes a game from a snapshot: replaces the cards on the table and in the deck, and restores the players'
+     * scores, tokens, claims and freezes and the time left in the round. Must be called before the dealer thread
+     * starts.
+     */
+    public void resume(GameSnapshot snapshot) {
+        long now = env.clock.currentTimeMillis();
+        for (int card = 0; card < env.config.deckSize; ++card)
+            deck.remove(card);
+        for (int card : snapshot.deck)
+            deck.add(card);
+        deckSize = deck.size();
+        table.replaceCards(snapshot.slotToCard);
+        for (int slot = 0; slot < env.config.tableSize; ++slot) {
+            if (snapshot.slotToCard[slot] < 0) {
+                freeSlot(slot);
+                continue;
+            }
+            emptySlots.remove(slot);
+            emptyOverflowSlots.remove(slot);
+        }
+        cardsVersion++;
+
+        table.canPlayerModifyTable = true; // the players continue where they were
+        for (Player player : players) {
+            player.restore(snapshot); // places the player's tokens on the table too
+            if (snapshot.states[player.id] == Player.State.WAITING) table.submitClaim(player.id);
+            long freeze = snapshot.freezeMillis[player.id];
+            if (snapshot.states[player.id] == Player.State.FROZEN) freeze = Math.max(1, freeze);
+            if (freeze > 0) {
+                frozenPlayers.add(new FrozenPlayer(player.id, now + freeze));
+                env.ui.setFreeze(player.id, freeze);
+            }
+            gameStats[player.id].add(snapshot.stats[player.id]);
+        }
+
+        reshuffleTime = now + snapshot.roundMillis;
+        env.ui.setElapsed(snapshot.roundMillis);
+        dealtMillis = now;
+        newRound = false;
+        roundPlanner.prepare(cardsInGame(), cardsVersion);
+        firstDeal.countDown();
+        env.logger.info("resumed the game with " + table.countCards() + " cards on the table and " + deck.size()
+                + " in the deck");
+    }
+
+    /**
+     * Captures the game and hands it to the checkpoint writer, if a checkpoint is due.
+     */
+    private void checkpointIfDue() {
+        if (checkpointFile == null || env.config.checkpointMillis <= 0) return;
+        long now = env.clock.currentTimeMillis();
+        if (now < nextCheckpointMillis) return;
+        nextCheckpointMillis = now + env.config.checkpointMillis;
+        GameSnapshot snapshot = snapshot();
+        checkpointWriter.execute(() -> writeCheckpoint(snapshot));
+    }
+
+    private boolean writeCheckpoint(GameSnapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            snapshot.write(checkpointFile);
+            env.logger.info("checkpoint written in " + (System.nanoTime() - start) / 1000 + " us");
+            return true;
+        } catch (IOException e) {
+            env.logger.warning("cannot write the checkpoint: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops the periodic checkpoints. A terminated game is checkpointed one last time, so it resumes where it stopped,
+     * and the checkpoint of a game that is over is deleted.
+     */
+    private void closeCheckpoints() {
+        if (checkpointFile == null) return;
+        checkpointWriter.shutdown();
+        try {
+            if (!checkpointWriter.awaitTermination(env.config.shutdownTimeoutMillis, TimeUnit.MILLISECONDS))
+                env.logger.warning("the checkpoint writer did not stop in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (terminate) {
+            suspended = writeCheckpoint(snapshot());
+            return;
+        }
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            env.logger.warning("cannot delete the checkpoint: " + e);
+        }
+    }
+
+    /**
+     * Waits until the first cards are on the table.
+     *
+     * @param millis - the maximal time to wait.
+     * @return - true iff the cards were dealt (or the dealer finished) in time.
+     */
+    public boolean awaitFirstDeal(long millis) throws InterruptedException {
+        return firstDeal.await(millis, TimeUnit.MILLISECONDS);
+    }
 
     public Player[] getPlayers() {
         return players;
@@ -291,6 +756,13 @@ public class Dealer implements Runnable {
         return frozenPlayers;
     }
 
+    /**
+     * @return - the number of cards in the deck (may be called from any thread).
+     */
+    public int getDeckSize() {
+        return deckSize;
+    }
+
     public boolean isTerminate() {
         return terminate;
     }
@@ -0,0 +1,51 @@
+package bguspl.set.ex;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the game events to a text file, a line per event with the time since the journal was opened (in
+ * milliseconds). A consumer of the event bus (see GameEventBus), so the file is written off the game threads, and
+ * flushed at the end of every batch.
+ */
+public class EventJournal implements GameEventBus.Handler {
+
+    private final BufferedWriter writer;
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Opens the journal (an existing file is replaced).
+     */
+    public EventJournal(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onEvent(GameEvent event, boolean endOfBatch) throws IOException {
+        writer.write(String.format("%.3f %s", (event.nanos - startNanos) / 1e6, event));
+        writer.newLine();
+        if (endOfBatch) writer.flush();
+    }
+
+    @Override
+    public void onLost(long events) {
+        try {
+            writer.write("lost " + events + " events");
+            writer.newLine();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -16,4 +16,12 @@ public class FrozenPlayer {
     public long getFreezeTime() {
         return freezeTime;
     }
+
+    /**
+     * @param now - the current time (see Env::clock).
+     * @return - the time left until the player is unfrozen (negative once the freeze is over).
+     */
+    public long remainingMillis(long now) {
+        return freezeTime - now;
+    }
 }
@@ -0,0 +1,144 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * A game event published on the event bus (see GameEventBus), one per GameListener notification. Immutable.
+ */
+public class GameEvent {
+
+    /**
+     * The kind of an event (named after the GameListener method).
+     */
+    public enum Type {
+        CARD_PLACED,
+        CARD_REMOVED,
+        TOKEN_PLACED,
+        TOKEN_REMOVED,
+        KEY_DROPPED,
+        CLAIM_ENQUEUED,
+        CLAIM_CHECKED,
+        CLAIM_REJECTED,
+        PLAYER_FROZEN,
+        PLAYER_UNFROZEN,
+        RESHUFFLE_STARTED,
+        RESHUFFLE_FINISHED
+    }
+
+    /**
+     * The position of the event in the bus (events are numbered from 0 in the order they were claimed).
+     */
+    public final long sequence;
+
+    /**
+     * The time the event was published (in System::nanoTime terms).
+     */
+    public final long nanos;
+
+    public final Type type;
+
+    /**
+     * The player id (-1 for the events that are not about a player).
+     */
+    public final int player;
+
+    /**
+     * The card (-1 if the event has none), or the number of cards of RESHUFFLE_FINISHED.
+     */
+    public final int card;
+
+    /**
+     * The slot (-1 if the event has none).
+     */
+    public final int slot;
+
+    /**
+     * The freeze time of PLAYER_FROZEN (0 for the other events).
+     */
+    public final long millis;
+
+    /**
+     * True iff the claim was legal (CLAIM_CHECKED) or the player was penalized (PLAYER_FROZEN).
+     */
+    public final boolean flag;
+
+    /**
+     * The claimed cards of CLAIM_ENQUEUED (null for the other events).
+     */
+    private final int[] cards;
+
+    GameEvent(long sequence, Type type, int player, int card, int slot, long millis, boolean flag, int[] cards) {
+        this.sequence = sequence;
+        this.nanos = System.nanoTime();
+        this.type = type;
+        this.player = player;
+        this.card = card;
+        this.slot = slot;
+        this.millis = millis;
+        this.flag = flag;
+        this.cards = cards;
+    }
+
+    /**
+     * @return - a copy of the claimed cards of CLAIM_ENQUEUED (null for the other events).
+     */
+    public int[] cards() {
+        return cards == null ? null : cards.clone();
+    }
+
+    /**
+     * Notifies a listener about the event (calls the GameListener method of the event's type).
+     */
+    public void dispatch(GameListener listener) {
+        switch (type) {
+            case CARD_PLACED:
+                listener.cardPlaced(card, slot);
+                break;
+            case CARD_REMOVED:
+                listener.cardRemoved(card, slot);
+                break;
+            case TOKEN_PLACED:
+                listener.tokenPlaced(player, slot);
+                break;
+            case TOKEN_REMOVED:
+                listener.tokenRemoved(player, slot);
+                break;
+            case KEY_DROPPED:
+                listener.keyDropped(player, slot);
+                break;
+            case CLAIM_ENQUEUED:
+                listener.claimEnqueued(player, cards());
+                break;
+            case CLAIM_CHECKED:
+                listener.claimChecked(player, flag);
+                break;
+            case CLAIM_REJECTED:
+                listener.claimRejected(player);
+                break;
+            case PLAYER_FROZEN:
+                listener.playerFrozen(player, millis, flag);
+                break;
+            case PLAYER_UNFROZEN:
+                listener.playerUnfrozen(player);
+                break;
+            case RESHUFFLE_STARTED:
+                listener.reshuffleStarted();
+                break;
+            case RESHUFFLE_FINISHED:
+                listener.reshuffleFinished(card);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append(sequence).append(' ').append(type);
+        if (player >= 0) sb.append(" player=").append(player);
+        if (card >= 0) sb.append(type == Type.RESHUFFLE_FINISHED ? " cards=" : " card=").append(card);
+        if (slot >= 0) sb.append(" slot=").append(slot);
+        if (cards != null) sb.append(" cards=").append(Arrays.toString(cards));
+        if (type == Type.PLAYER_FROZEN) sb.append(" millis=").append(millis).append(" penalty=").append(flag);
+        if (type == Type.CLAIM_CHECKED) sb.append(" legal=").append(flag);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,430 @@
+package bguspl.set.ex;
+
+import bguspl.set.GameThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Publishes the game events (as the table's GameListener) on a ring buffer that several consumers read, in the style
+ * of the LMAX Disruptor: each consumer has its own thread and sequence, handles the events in batches and waits for
+ * new events with its own strategy, so a slow consumer (e.g. a journal file) adds no latency to the game threads.
+ * <p>
+ * The producers never wait for the consumers. A consumer that falls a whole ring behind skips the events that were
+ * overwritten, counts them as lost and is told so (see Handler::onLost), and every consumer reports its lag.
+ * Any game thread may publish (the tokens are placed by the player threads), so a producer claims a sequence with an
+ * atomic increment and publishes an immutable event in its slot: a consumer that was lapped never reads a half
+ * written event.
+ */
+public class GameEventBus implements GameListener {
+
+    /**
+     * Handles the events of a consumer (called by the consumer's thread only).
+     */
+    public interface Handler {
+
+        /**
+         * @param event      - the next event.
+         * @param endOfBatch - true iff no more events are available now (e.g. a good time to flush).
+         */
+        void onEvent(GameEvent event, boolean endOfBatch) throws Exception;
+
+        /**
+         * Called when events were overwritten before the consumer read them.
+         *
+         * @param events - the number of events lost.
+         */
+        default void onLost(long events) {
+        }
+
+        /**
+         * Called when the bus stops, after the consumer handled all the events published.
+         */
+        default void onShutdown() {
+        }
+    }
+
+    /**
+     * How a consumer waits for new events: the faster strategies react sooner and burn more CPU.
+     */
+    public enum WaitStrategy {
+        BUSY_SPIN,  // keeps polling
+        YIELDING,   // polls, then yields the CPU between polls
+        SLEEPING,   // polls and yields, then sleeps 0.1 ms between polls
+        BLOCKING    // parks until a producer publishes
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000L;
+    private static final long MAX_PARK_NANOS = 10_000_000L;
+
+    /**
+     * A consumer of the bus, with its own sequence and statistics.
+     */
+    public class Consumer implements Runnable {
+
+        private final String name;
+        private final Handler handler;
+        private final WaitStrategy waitStrategy;
+        private final int maxBatch;
+
+        /**
+         * The sequence of the next event to handle.
+         */
+        private volatile long next;
+
+        /**
+         * Written by the consumer thread only.
+         */
+        private volatile long events;
+        private volatile long batches;
+        private volatile long lostEvents;
+        private volatile long maxLag;
+
+        private volatile Thread thread; // set when the bus starts
+
+        /**
+         * True iff the consumer is parked until an event is published (see WaitStrategy::BLOCKING).
+         */
+        private volatile boolean parked;
+
+        Consumer(String name, Handler handler, WaitStrategy waitStrategy, int maxBatch, long next) {
+            this.name = name;
+            this.handler = handler;
+            this.waitStrategy = waitStrategy;
+            this.maxBatch = Math.max(1, maxBatch);
+            this.next = next;
+        }
+
+        @Override
+        public void run() {
+            for (int idle = 0; ; idle++) {
+                boolean stopping = !running; // read before the poll, so the poll sees all the events published
+                if (poll() > 0) idle = -1;
+                else if (stopping) break;
+                else idle(idle);
+            }
+            try {
+                handler.onShutdown();
+            } catch (RuntimeException e) {
+                logger.warning("event consumer " + name + " failed to shut down: " + e);
+            }
+        }
+
+        /**
+         * Handles the available events, up to a batch.
+         *
+         * @return - the number of events handled.
+         */
+        private int poll() {
+            long sequence = next;
+            maxLag = Math.max(maxLag, claimed.get() - sequence);
+            int count = 0;
+            GameEvent event = ring.get(index(sequence));
+            while (count < maxBatch && event != null && event.sequence >= sequence) {
+                if (event.sequence > sequence) { // lapped: resume from the oldest event that may still be in the ring
+                    long resume = Math.max(sequence + 1, claimed.get() - ring.length());
+                    lost(resume - sequence);
+                    sequence = resume;
+                    event = ring.get(index(sequence));
+                    continue;
+                }
+                GameEvent following = ring.get(index(sequence + 1));
+                boolean endOfBatch = count + 1 == maxBatch || following == null || following.sequence != sequence + 1;
+                try {
+                    handler.onEvent(event, endOfBatch);
+                } catch (Exception e) {
+                    logger.warning("event consumer " + name + " failed on event " + event + ": " + e);
+                }
+                sequence++;
+                count++;
+                event = following;
+            }
+            next = sequence;
+            if (count > 0) {
+                events += count;
+                batches++;
+            }
+            return count;
+        }
+
+        private void lost(long count) {
+            lostEvents += count;
+            try {
+                handler.onLost(count);
+            } catch (RuntimeException e) {
+                logger.warning("event consumer " + name + " failed on lost events: " + e);
+            }
+        }
+
+        private void idle(int idle) {
+            switch (waitStrategy) {
+                case BUSY_SPIN:
+                    break;
+                case YIELDING:
+                    if (idle >= SPIN_TRIES) Thread.yield();
+                    break;
+                case SLEEPING:
+                    if (idle >= 2 * SPIN_TRIES) LockSupport.parkNanos(this, SLEEP_NANOS);
+                    else if (idle >= SPIN_TRIES) Thread.yield();
+                    break;
+                case BLOCKING:
+                    parked = true;
+                    GameEvent event = ring.get(index(next)); // checked after parked is set, so no wake up is missed
+                    if (running && (event == null || event.sequence < next))
+                        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                    parked = false;
+                    break;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return - the number of events published that the consumer did not handle yet.
+         */
+        public long getLag() {
+            return Math.max(0, claimed.get() - next);
+        }
+
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        /**
+         * @return - the number of events that were overwritten before the consumer read them.
+         */
+        public long getLostEvents() {
+            return lostEvents;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s): %d events in %d batches, lag %d (max %d), lost %d", name,
+                    waitStrategy.name().toLowerCase(), events, batches, getLag(), maxLag, lostEvents);
+        }
+    }
+
+    private final Logger logger;
+
+    /**
+     * The latest event published in each slot (the event of sequence s is in slot s & mask, until it is overwritten).
+     */
+    private final AtomicReferenceArray<GameEvent> ring;
+    private final int mask;
+
+    /**
+     * The sequence the next producer claims.
+     */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * The events dropped because a producer was lapped between claiming its sequence and publishing the event.
+     */
+    private final LongAdder overrun = new LongAdder();
+
+    private final List<Consumer> consumers = new ArrayList<>();
+
+    /**
+     * The consumers that park while they wait (the producers wake them up).
+     */
+    private volatile Consumer[] blocking = new Consumer[0];
+
+    private volatile boolean running;
+
+    /**
+     * @param logger   - logs the consumers' failures.
+     * @param capacity - the number of events a consumer may fall behind before it loses events (rounded up to a power
+     *                 of 2).
+     */
+    public GameEventBus(Logger logger, int capacity) {
+        this.logger = logger;
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        ring = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds a consumer that handles the events published from now on. Must be called before start.
+     *
+     * @param maxBatch - the maximal number of events handled in a batch.
+     */
+    public synchronized Consumer addConsumer(String name, Handler handler, WaitStrategy waitStrategy, int maxBatch) {
+        if (running) throw new IllegalStateException("the event bus is running");
+        Consumer consumer = new Consumer(name, handler, waitStrategy, maxBatch, claimed.get());
+        consumers.add(consumer);
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            List<Consumer> parking = new ArrayList<>();
+            for (Consumer other : consumers)
+                if (other.waitStrategy == WaitStrategy.BLOCKING) parking.add(other);
+            blocking = parking.toArray(new Consumer[0]);
+        }
+        return consumer;
+    }
+
+    /**
+     * Adapts a listener to a consumer handler (the listener is called on the consumer's thread).
+     */
+    public static Handler handler(GameListener listener) {
+        return (event, endOfBatch) -> event.dispatch(listener);
+    }
+
+    /**
+     * Starts a thread per consumer.
+     */
+    public synchronized void start(GameThreads threads) {
+        running = true;
+        for (int i = 0; i < consumers.size(); i++) {
+            Thread thread = threads.newThread("events", i, consumers.get(i));
+            thread.setDaemon(true); // a consumer never keeps the game alive
+            consumers.get(i).thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the consumers after they handle the events already published.
+     *
+     * @return - true iff all the consumers stopped in time.
+     */
+    public synchronized boolean stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        boolean stopped = true;
+        for (Consumer consumer : consumers) {
+            Thread thread = consumer.thread;
+            if (thread == null) continue;
+            LockSupport.unpark(thread);
+            thread.join(Math.max(1, (deadline - System.nanoTime()) / 1_000_000L));
+            if (thread.isAlive()) {
+                logger.warning("event consumer " + consumer.name + " did not stop in time");
+                stopped = false;
+            }
+        }
+        return stopped;
+    }
+
+    public synchronized List<Consumer> getConsumers() {
+        return new ArrayList<>(consumers);
+    }
+
+    /**
+     * @return - the number of events published so far.
+     */
+    public long getPublished() {
+        return claimed.get();
+    }
+
+    /**
+     * @return - the number of events dropped because their producer was lapped before it published them.
+     */
+    public long getOverrun() {
+        return overrun.sum();
+    }
+
+    /**
+     * @return - a line per consumer with its statistics.
+     */
+    public String[] report() {
+        List<Consumer> all = getConsumers();
+        String[] lines = new String[all.size()];
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = all.get(i).toString();
+        return lines;
+    }
+
+    private int index(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    private void publish(GameEvent.Type type, int player, int card, int slot, long millis, boolean flag, int[] cards) {
+        long sequence = claimed.getAndIncrement();
+        GameEvent event = new GameEvent(sequence, type, player, card, slot, millis, flag, cards);
+        int index = index(sequence);
+        GameEvent current;
+        do {
+            current = ring.get(index);
+            if (current != null && current.sequence > sequence) { // a later event already took the slot
+                overrun.increment();
+                return;
+            }
+        } while (!ring.compareAndSet(index, current, event));
+        for (Consumer consumer : blocking)
+            if (consumer.parked) LockSupport.unpark(consumer.thread);
+    }
+
+    @Override
+    public void cardPlaced(int card, int slot) {
+        publish(GameEvent.Type.CARD_PLACED, -1, card, slot, 0, false, null);
+    }
+
+    @Override
+    public void cardRemoved(int card, int slot) {
+        publish(GameEvent.Type.CARD_REMOVED, -1, card, slot, 0, false, null);
+    }
+
+    @Override
+    public void tokenPlaced(int player, int slot) {
+        publish(GameEvent.Type.TOKEN_PLACED, player, -1, slot, 0, false, null);
+    }
+
+    @Override
+    public void tokenRemoved(int player, int slot) {
+        publish(GameEvent.Type.TOKEN_REMOVED, player, -1, slot, 0, false, null);
+    }
+
+    @Override
+    public void keyDropped(int player, int slot) {
+        publish(GameEvent.Type.KEY_DROPPED, player, -1, slot, 0, false, null);
+    }
+
+    @Override
+    public void claimEnqueued(int player, int[] cards) {
+        publish(GameEvent.Type.CLAIM_ENQUEUED, player, -1, -1, 0, false, cards.clone());
+    }
+
+    @Override
+    public void claimChecked(int player, boolean legal) {
+        publish(GameEvent.Type.CLAIM_CHECKED, player, -1, -1, 0, legal, null);
+    }
+
+    @Override
+    public void claimRejected(int player) {
+        publish(GameEvent.Type.CLAIM_REJECTED, player, -1, -1, 0, false, null);
+    }
+
+    @Override
+    public void playerFrozen(int player, long millis, boolean penalty) {
+        publish(GameEvent.Type.PLAYER_FROZEN, player, -1, -1, millis, penalty, null);
+    }
+
+    @Override
+    public void playerUnfrozen(int player) {
+        publish(GameEvent.Type.PLAYER_UNFROZEN, player, -1, -1, 0, false, null);
+    }
+
+    @Override
+    public void reshuffleStarted() {
+        publish(GameEvent.Type.RESHUFFLE_STARTED, -1, -1, -1, 0, false, null);
+    }
+
+    @Override
+    public void reshuffleFinished(int cards) {
+        publish(GameEvent.Type.RESHUFFLE_FINISHED, -1, cards, -1, 0, false, null);
+    }
+}
@@ -0,0 +1,204 @@
+package bguspl.set.ex;
+
+/**
+ * Receives notifications about game events (e.g. for measurements). The methods are called synchronously by the thread
+ * that caused the event, so implementations must be thread safe and return quickly.
+ */
+public interface GameListener {
+
+    /**
+     * A listener that ignores all events.
+     */
+    GameListener NONE = new GameListener() {
+    };
+
+    /**
+     * The listener that records Java Flight Recorder events (only compiled on JDK 11 and later, see the jfr profile).
+     */
+    String FLIGHT_RECORDER = "bguspl.set.ex.FlightRecorderListener";
+
+    /**
+     * Creates the flight recorder listener if the game was built with it and runs on a JVM that has the flight recorder.
+     *
+     * @param players - the number of players.
+     * @return - the listener, or null if it is not available.
+     */
+    static GameListener flightRecorder(int players) {
+        try {
+            return (GameListener) Class.forName(FLIGHT_RECORDER).getConstructor(int.class).newInstance(players);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return - a listener that notifies two listeners (in that order).
+     */
+    static GameListener both(GameListener first, GameListener second) {
+        return new GameListener() {
+            @Override
+            public void cardPlaced(int card, int slot) {
+                first.cardPlaced(card, slot);
+                second.cardPlaced(card, slot);
+            }
+
+            @Override
+            public void cardRemoved(int card, int slot) {
+                first.cardRemoved(card, slot);
+                second.cardRemoved(card, slot);
+            }
+
+            @Override
+            public void tokenPlaced(int player, int slot) {
+                first.tokenPlaced(player, slot);
+                second.tokenPlaced(player, slot);
+            }
+
+            @Override
+            public void tokenRemoved(int player, int slot) {
+                first.tokenRemoved(player, slot);
+                second.tokenRemoved(player, slot);
+            }
+
+            @Override
+            public void keyDropped(int player, int slot) {
+                first.keyDropped(player, slot);
+                second.keyDropped(player, slot);
+            }
+
+            @Override
+            public void claimEnqueued(int player, int[] cards) {
+                first.claimEnqueued(player, cards);
+                second.claimEnqueued(player, cards);
+            }
+
+            @Override
+            public void claimChecked(int player, boolean legal) {
+                first.claimChecked(player, legal);
+                second.claimChecked(player, legal);
+            }
+
+            @Override
+            public void claimRejected(int player) {
+                first.claimRejected(player);
+                second.claimRejected(player);
+            }
+
+            @Override
+            public void playerFrozen(int player, long millis, boolean penalty) {
+                first.playerFrozen(player, millis, penalty);
+                second.playerFrozen(player, millis, penalty);
+            }
+
+            @Override
+            public void playerUnfrozen(int player) {
+                first.playerUnfrozen(player);
+                second.playerUnfrozen(player);
+            }
+
+            @Override
+            public void reshuffleStarted() {
+                first.reshuffleStarted();
+                second.reshuffleStarted();
+            }
+
+            @Override
+            public void reshuffleFinished(int cards) {
+                first.reshuffleFinished(cards);
+                second.reshuffleFinished(cards);
+            }
+        };
+    }
+
+    /**
+     * Called when a card is placed on the table.
+     */
+    default void cardPlaced(int card, int slot) {
+    }
+
+    /**
+     * Called when a card is removed from the table.
+     */
+    default void cardRemoved(int card, int slot) {
+    }
+
+    /**
+     * Called when a player placed a token on the table.
+     */
+    default void tokenPlaced(int player, int slot) {
+    }
+
+    /**
+     * Called when a player removed a token from the table.
+     */
+    default void tokenRemoved(int player, int slot) {
+    }
+
+    /**
+     * Called when a key press of a player is ignored (e.g. the player is frozen or the table is locked).
+     *
+     * @param player - the player id.
+     * @param slot   - the slot that was pressed.
+     */
+    default void keyDropped(int player, int slot) {
+    }
+
+    /**
+     * Called when a player placed the last token of a set and waits for the dealer to check it.
+     *
+     * @param player - the player id.
+     * @param cards  - the cards the player placed tokens on.
+     */
+    default void claimEnqueued(int player, int[] cards) {
+    }
+
+    /**
+     * Called when the dealer decided whether a claimed set is legal (before the player is awarded or penalized).
+     *
+     * @param player - the player id.
+     * @param legal  - true iff the player is awarded a point.
+     */
+    default void claimChecked(int player, boolean legal) {
+    }
+
+    /**
+     * Called when the dealer rejects a claim without checking it, because its cards are no longer on the table (e.g.
+     * they were taken by an earlier claim). The player is not penalized.
+     *
+     * @param player - the player id.
+     */
+    default void claimRejected(int player) {
+    }
+
+    /**
+     * Called when the dealer freezes a player after a claim was checked.
+     *
+     * @param player  - the player id.
+     * @param millis  - the freeze time.
+     * @param penalty - true iff the player was penalized (otherwise the player got a point).
+     */
+    default void playerFrozen(int player, long millis, boolean penalty) {
+    }
+
+    /**
+     * Called when the freeze of a player is over.
+     *
+     * @param player - the player id.
+     */
+    default void playerUnfrozen(int player) {
+    }
+
+    /**
+     * Called when the dealer starts to replace all the cards on the table (at the turn timeout).
+     */
+    default void reshuffleStarted() {
+    }
+
+    /**
+     * Called when the cards of the next round are on the table.
+     *
+     * @param cards - the number of cards on the table.
+     */
+    default void reshuffleFinished(int cards) {
+    }
+}
@@ -0,0 +1,242 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.StartupTimer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Exposes the live state of a game over JMX (e.g. for JConsole or jcmd) and allows changing the game's tunable
+ * configuration values while it is running.
+ */
+public class GameManagement implements GameManagementMXBean {
+
+    /**
+     * The name the management bean is registered under.
+     */
+    public static final String OBJECT_NAME = "bguspl.set:type=Game";
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Dealer dealer;
+    private final Table table;
+
+    /**
+     * The startup measurements (null if not measured).
+     */
+    private volatile StartupTimer startupTimer;
+
+    /**
+     * The event bus (null if the game has none).
+     */
+    private volatile GameEventBus eventBus;
+
+    /**
+     * The name the bean was registered with (null if not registered).
+     */
+    private ObjectName name;
+
+    public GameManagement(Env env, Dealer dealer, Table table) {
+        this.env = env;
+        this.dealer = dealer;
+        this.table = table;
+    }
+
+    /**
+     * Registers this bean with the platform MBean server. Failures are logged and otherwise ignored, the game can run
+     * without it.
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+            name = objectName;
+            env.logger.info("management bean registered as " + OBJECT_NAME);
+        } catch (JMException e) {
+            env.logger.severe("cannot register management bean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes this bean from the platform MBean server (if it was registered).
+     */
+    public void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            env.logger.severe("cannot unregister management bean: " + e.getMessage());
+        }
+        name = null;
+    }
+
+    @Override
+    public int getDeckSize() {
+        return dealer.getDeckSize();
+    }
+
+    @Override
+    public int getCardsOnTable() {
+        return table.countCards();
+    }
+
+    @Override
+    public int getSetsOnTable() {
+        return table.solver.countSets(table.snapshot(new int[env.config.tableSize]), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getPendingClaims() {
+        return table.playersToCheck.size();
+    }
+
+    @Override
+    public int getFrozenPlayers() {
+        return dealer.getFrozenPlayers().size();
+    }
+
+    @Override
+    public int[] getPlayerScores() {
+        return Arrays.stream(dealer.getPlayers()).mapToInt(Player::score).toArray();
+    }
+
+    @Override
+    public String[] getPlayerStates() {
+        return Arrays.stream(dealer.getPlayers()).map(player -> player.getState().name()).toArray(String[]::new);
+    }
+
+    @Override
+    public long getInputEvents() {
+        return Arrays.stream(dealer.getPlayers()).mapToLong(Player::getInputEvents).sum();
+    }
+
+    @Override
+    public double getMeanInputLatencyMicros() {
+        long events = getInputEvents();
+        long nanos = Arrays.stream(dealer.getPlayers()).mapToLong(Player::getInputLatencyNanos).sum();
+        return events == 0 ? 0 : nanos / 1000.0 / events;
+    }
+
+    @Override
+    public long getMaxInputLatencyMicros() {
+        return Arrays.stream(dealer.getPlayers()).mapToLong(Player::getMaxInputLatencyNanos).max().orElse(0) / 1000;
+    }
+
+    @Override
+    public long getRepeatedKeyPresses() {
+        return Arrays.stream(dealer.getPlayers()).mapToLong(Player::getRepeatedKeys).sum();
+    }
+
+    @Override
+    public long getCollapsedKeyPresses() {
+        return Arrays.stream(dealer.getPlayers()).mapToLong(Player::getCollapsedKeys).sum();
+    }
+
+    @Override
+    public long getThrottledKeyPresses() {
+        return Arrays.stream(dealer.getPlayers()).mapToLong(Player::getThrottledKeys).sum();
+    }
+
+    @Override
+    public String[] getThreadReport() {
+        return env.threads.report();
+    }
+
+    public void setStartupTimer(StartupTimer startupTimer) {
+        this.startupTimer = startupTimer;
+    }
+
+    public void setEventBus(GameEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    @Override
+    public String[] getEventConsumers() {
+        return eventBus == null ? new String[0] : eventBus.report();
+    }
+
+    @Override
+    public long getTimeToPlayableMillis() {
+        return startupTimer == null ? -1 : startupTimer.getTimeToPlayableMillis();
+    }
+
+    @Override
+    public String[] getStartupPhases() {
+        return startupTimer == null ? new String[0] : startupTimer.getPhases();
+    }
+
+    @Override
+    public long getTableDelayMillis() {
+        return env.config.tableDelayMillis;
+    }
+
+    @Override
+    public void setTableDelayMillis(long millis) {
+        setSeconds("TableDelaySeconds", millis);
+    }
+
+    @Override
+    public long getTurnTimeoutMillis() {
+        return env.config.turnTimeoutMillis;
+    }
+
+    @Override
+    public void setTurnTimeoutMillis(long millis) {
+        setSeconds("TurnTimeoutSeconds", millis);
+    }
+
+    @Override
+    public long getPointFreezeMillis() {
+        return env.config.pointFreezeMillis;
+    }
+
+    @Override
+    public void setPointFreezeMillis(long millis) {
+        setSeconds("PointFreezeSeconds", millis);
+    }
+
+    @Override
+    public long getPenaltyFreezeMillis() {
+        return env.config.penaltyFreezeMillis;
+    }
+
+    @Override
+    public void setPenaltyFreezeMillis(long millis) {
+        setSeconds("PenaltyFreezeSeconds", millis);
+    }
+
+    @Override
+    public long getComputerKeyPressMillis() {
+        return env.config.computerKeyPressMillis;
+    }
+
+    @Override
+    public void setComputerKeyPressMillis(long millis) {
+        setSeconds("ComputerKeyPressSeconds", millis);
+    }
+
+    /**
+     * Publishes a new configuration with the given property changed (the values in config.properties are in seconds).
+     *
+     * @param key    - the property name.
+     * @param millis - the new value in milliseconds.
+     */
+    private void setSeconds(String key, long millis) {
+        if (millis < 0) throw new IllegalArgumentException(key + " must not be negative: " + millis);
+        env.updateConfig(config -> config.with(env.logger, key, BigDecimal.valueOf(millis, 3).toPlainString()));
+        env.logger.info("management: " + key + " set to " + millis + " milliseconds");
+    }
+}
@@ -0,0 +1,112 @@
+package bguspl.set.ex;
+
+/**
+ * The JMX management interface of a running game (see GameManagement).
+ */
+public interface GameManagementMXBean {
+
+    /**
+     * @return - the number of cards left in the dealer's deck.
+     */
+    int getDeckSize();
+
+    /**
+     * @return - the number of cards currently on the table.
+     */
+    int getCardsOnTable();
+
+    /**
+     * @return - the number of legal sets currently on the table.
+     */
+    int getSetsOnTable();
+
+    /**
+     * @return - the number of players waiting for the dealer to check their set.
+     */
+    int getPendingClaims();
+
+    /**
+     * @return - the number of players that are currently frozen.
+     */
+    int getFrozenPlayers();
+
+    /**
+     * @return - the score of each player (by player id).
+     */
+    int[] getPlayerScores();
+
+    /**
+     * @return - the state of each player (by player id).
+     */
+    String[] getPlayerStates();
+
+    /**
+     * @return - the number of keyboard key presses the players handled.
+     */
+    long getInputEvents();
+
+    /**
+     * @return - the mean time from a keyboard key press until the player handled it (placed or removed the token).
+     */
+    double getMeanInputLatencyMicros();
+
+    /**
+     * @return - the maximal time from a keyboard key press until the player handled it.
+     */
+    long getMaxInputLatencyMicros();
+
+    /**
+     * @return - the number of keyboard auto-repeat presses dropped.
+     */
+    long getRepeatedKeyPresses();
+
+    /**
+     * @return - the number of queued key presses dropped in pairs on the same slot (the second undoes the first).
+     */
+    long getCollapsedKeyPresses();
+
+    /**
+     * @return - the number of key presses dropped above the players' rate limit.
+     */
+    long getThrottledKeyPresses();
+
+    /**
+     * @return - the resources used by the game threads so far, a line per role (see GameThreads).
+     */
+    String[] getThreadReport();
+
+    /**
+     * @return - the number of milliseconds from the start of the program until the game was playable.
+     */
+    long getTimeToPlayableMillis();
+
+    /**
+     * @return - the duration of each startup phase.
+     */
+    String[] getStartupPhases();
+
+    /**
+     * @return - the events handled, the lag and the events lost of each consumer of the event bus (see GameEventBus).
+     */
+    String[] getEventConsumers();
+
+    long getTableDelayMillis();
+
+    void setTableDelayMillis(long millis);
+
+    long getTurnTimeoutMillis();
+
+    void setTurnTimeoutMillis(long millis);
+
+    long getPointFreezeMillis();
+
+    void setPointFreezeMillis(long millis);
+
+    long getPenaltyFreezeMillis();
+
+    void setPenaltyFreezeMillis(long millis);
+
+    long getComputerKeyPressMillis();
+
+    void setComputerKeyPressMillis(long millis);
+}
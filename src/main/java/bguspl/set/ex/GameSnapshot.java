@@ -0,0 +1,190 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * The complete state of a game in progress (see Dealer::snapshot and Dealer::resume): the deck, the cards on the
+ * table, the players' scores, tokens and states, the remaining freeze and round times and the players' statistics.
+ * The times are kept as remaining times, so a game resumes where it stopped whatever the clock says.
+ * <p>
+ * A snapshot is written as a compact binary record ended by a CRC32 of its bytes, to a temporary file that then
+ * replaces the previous checkpoint, so a crash in the middle of a write leaves the previous checkpoint valid.
+ */
+public class GameSnapshot {
+
+    private static final int MAGIC = 0x53455447; // "SETG"
+    private static final int VERSION = 1;
+
+    /**
+     * The time left until the round times out (in milliseconds).
+     */
+    final long roundMillis;
+
+    /**
+     * The cards in the deck (the cards that are neither in the deck nor on the table were removed from the game).
+     */
+    final int[] deck;
+
+    /**
+     * The card in each slot (-1 if none).
+     */
+    final int[] slotToCard;
+
+    /**
+     * The score, the slot mask of the tokens, the state, the time left until the player is unfrozen (0 if the player
+     * is not frozen) and the statistics in this game of each player.
+     */
+    final int[] scores;
+    final long[] tokens;
+    final Player.State[] states;
+    final long[] freezeMillis;
+    final ScoreBoard.Stats[] stats;
+
+    GameSnapshot(long roundMillis, int[] deck, int[] slotToCard, int players) {
+        this.roundMillis = roundMillis;
+        this.deck = deck;
+        this.slotToCard = slotToCard;
+        scores = new int[players];
+        tokens = new long[players];
+        states = new Player.State[players];
+        freezeMillis = new long[players];
+        stats = new ScoreBoard.Stats[players];
+    }
+
+    public int getPlayers() {
+        return scores.length;
+    }
+
+    /**
+     * @return - the snapshot as a binary record.
+     */
+    public byte[] encode() {
+        int size = 40 + 4 * (deck.length + slotToCard.length) + 69 * scores.length;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(slotToCard.length);
+            out.writeInt(scores.length);
+            out.writeLong(roundMillis);
+            out.writeInt(deck.length);
+            for (int card : deck) out.writeInt(card);
+            for (int card : slotToCard) out.writeInt(card);
+            for (int player = 0; player < scores.length; player++) {
+                out.writeInt(scores[player]);
+                out.writeLong(tokens[player]);
+                out.writeByte(states[player].ordinal());
+                out.writeLong(freezeMillis[player]);
+                ScoreBoard.Stats stats = this.stats[player];
+                out.writeLong(stats.sets);
+                out.writeLong(stats.penalties);
+                out.writeLong(stats.reactions);
+                out.writeLong(stats.reactionMillis);
+                out.writeLong(stats.fastestMillis);
+                out.writeLong(stats.slowestMillis);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a byte array stream does not fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a binary record (see encode) and checks that it fits a game configuration.
+     *
+     * @throws IOException - if the record is damaged or was written by a game with a different table or players.
+     */
+    public static GameSnapshot decode(byte[] bytes, Config config) throws IOException {
+        if (bytes.length < Long.BYTES) throw new IOException("the checkpoint is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong())
+            throw new IOException("the checkpoint is damaged");
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("not a checkpoint of this game");
+        int tableSize = in.readInt(), players = in.readInt();
+        if (tableSize != config.tableSize || players != config.players)
+            throw new IOException("the checkpoint is of a game with " + tableSize + " slots and " + players
+                    + " players");
+        long roundMillis = in.readLong();
+        int[] deck = new int[in.readInt()];
+        if (deck.length > config.deckSize) throw new IOException("the checkpoint has too many cards");
+        boolean[] seen = new boolean[config.deckSize];
+        for (int i = 0; i < deck.length; i++)
+            deck[i] = checkCard(in.readInt(), config, seen);
+        int[] slotToCard = new int[tableSize];
+        for (int slot = 0; slot < tableSize; slot++) {
+            int card = in.readInt();
+            slotToCard[slot] = card < 0 ? -1 : checkCard(card, config, seen);
+        }
+
+        GameSnapshot snapshot = new GameSnapshot(roundMillis, deck, slotToCard, players);
+        Player.State[] values = Player.State.values();
+        for (int player = 0; player < players; player++) {
+            snapshot.scores[player] = in.readInt();
+            long tokens = snapshot.tokens[player] = in.readLong();
+            int state = in.readByte();
+            if (snapshot.scores[player] < 0 || state < 0 || state >= values.length
+                    || Long.bitCount(tokens) > config.featureSize)
+                throw new IOException("the checkpoint has an invalid player " + player);
+            for (long mask = tokens; mask != 0; mask &= mask - 1) {
+                int slot = Long.numberOfTrailingZeros(mask);
+                if (slot >= tableSize || slotToCard[slot] < 0)
+                    throw new IOException("the checkpoint has a token of player " + player + " on an empty slot");
+            }
+            snapshot.states[player] = values[state];
+            snapshot.freezeMillis[player] = in.readLong();
+            ScoreBoard.Stats stats = snapshot.stats[player] = new ScoreBoard.Stats();
+            stats.sets = in.readLong();
+            stats.penalties = in.readLong();
+            stats.reactions = in.readLong();
+            stats.reactionMillis = in.readLong();
+            stats.fastestMillis = in.readLong();
+            stats.slowestMillis = in.readLong();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return - the card, if it is a card of the deck that was not seen before.
+     */
+    private static int checkCard(int card, Config config, boolean[] seen) throws IOException {
+        if (card < 0 || card >= config.deckSize || seen[card])
+            throw new IOException("the checkpoint has an invalid card " + card);
+        seen[card] = true;
+        return card;
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it atomically.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, encode());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written by write.
+     *
+     * @throws IOException - if the file cannot be read, is damaged or does not fit the game configuration.
+     */
+    public static GameSnapshot read(Path file, Config config) throws IOException {
+        return decode(Files.readAllBytes(file), config);
+    }
+}
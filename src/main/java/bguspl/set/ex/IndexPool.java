@@ -0,0 +1,105 @@
+package bguspl.set.ex;
+
+import java.util.Random;
+
+/**
+ * A set of ints between 0 and a fixed capacity that supports adding, removing and drawing a uniformly random member
+ * in O(1) (the members are kept densely packed in an array, a removed member is swapped with the last one).
+ * Not thread safe.
+ */
+public class IndexPool {
+
+    /**
+     * The members (in values[0..size)).
+     */
+    private final int[] values;
+
+    /**
+     * The index of each int in values (-1 if it is not a member).
+     */
+    private final int[] positions;
+
+    private int size;
+
+    /**
+     * @param capacity - the members are between 0 and capacity - 1.
+     * @param full     - true iff all the ints in that range should be members initially.
+     */
+    public IndexPool(int capacity, boolean full) {
+        values = new int[capacity];
+        positions = new int[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            values[i] = i;
+            positions[i] = full ? i : -1;
+        }
+        size = full ? capacity : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return positions[value] >= 0;
+    }
+
+    /**
+     * @param index - between 0 and size - 1.
+     * @return - the member at that index (the order changes when members are removed).
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return - true iff the value was not a member before.
+     */
+    public boolean add(int value) {
+        if (positions[value] >= 0) return false;
+        values[size] = value;
+        positions[value] = size++;
+        return true;
+    }
+
+    /**
+     * @return - true iff the value was a member before.
+     */
+    public boolean remove(int value) {
+        int position = positions[value];
+        if (position < 0) return false;
+        int last = values[--size];
+        values[position] = last;
+        positions[last] = position;
+        values[size] = value;
+        positions[value] = -1;
+        return true;
+    }
+
+    /**
+     * Removes a uniformly random member.
+     *
+     * @return - the removed member, or -1 if there are none.
+     */
+    public int removeRandom(Random random) {
+        if (size == 0) return -1;
+        int value = values[random.nextInt(size)];
+        remove(value);
+        return value;
+    }
+
+    /**
+     * Copies the members to an array.
+     *
+     * @param array  - the target array.
+     * @param offset - the index in the array of the first member.
+     * @return - the index in the array after the last member.
+     */
+    public int copyTo(int[] array, int offset) {
+        System.arraycopy(values, 0, array, offset, size);
+        return offset + size;
+    }
+}
@@ -0,0 +1,302 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * A load test driver: runs a single table and dealer against many synthetic players that press keys at a fixed rate
+ * and reports how many claims the dealer processed, how long the players waited for a verdict, whether the verdicts
+ * were correct and how many key presses were dropped.
+ * A player that has no set to claim presses a random card instead, so the rate holds, and when the deck runs out a new
+ * game starts with the same players. The input rate limit (InputRatePerSecond) is off, the load sets the rate.
+ * <p>
+ * Usage: LoadGenerator [properties file]. On top of the regular configuration keys the file may contain:
+ * LoadPlayers (number of synthetic players), LoadPressesPerSecond (key presses per player per second),
+ * LoadValidClaimRatio (the share of claims that are legal sets), LoadThreads (threads pressing keys) and
+ * LoadDurationSeconds.
+ */
+public class LoadGenerator implements GameListener {
+
+    /**
+     * How often (in milliseconds) the driver checks whether the deck of the current game ran out.
+     */
+    private static final long CHECK_MILLIS = 100;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Counts the user interface calls (there is no window).
+     */
+    private final UserInterfaceHeadless ui = new UserInterfaceHeadless();
+
+    /**
+     * The game being played (a new one starts when the deck runs out), and the number of games started.
+     */
+    private volatile Game game;
+    private int games;
+
+    /**
+     * The load settings.
+     */
+    private final double pressesPerSecond;
+    private final double validClaimRatio;
+    private final int threads;
+    private final long durationMillis;
+
+    /**
+     * The time each player's pending claim was enqueued (in nanoseconds) and whether it was a legal set at that time.
+     */
+    private final AtomicLongArray claimNanos;
+    private final boolean[] claimLegal;
+
+    /**
+     * The counters reported at the end of the run.
+     */
+    private final AtomicLong pressesSent = new AtomicLong();
+    private final AtomicLong pressesRandom = new AtomicLong();
+    private final AtomicLong pressesDropped = new AtomicLong();
+    private final AtomicLong claimsEnqueued = new AtomicLong();
+    private final AtomicLong claimsLegal = new AtomicLong();
+    private final AtomicLong claimsChecked = new AtomicLong();
+    private final AtomicLong verdictsCorrect = new AtomicLong();
+    private final AtomicLong penalties = new AtomicLong();
+    private final AtomicLong claimsRejected = new AtomicLong();
+
+    /**
+     * The verdict latencies (in nanoseconds) and the number of latencies recorded.
+     */
+    private long[] latencies = new long[1024];
+    private int latencyCount;
+
+    public LoadGenerator(Properties properties, Logger logger) {
+        int count = Integer.parseInt(properties.getProperty("LoadPlayers", "100"));
+        pressesPerSecond = Double.parseDouble(properties.getProperty("LoadPressesPerSecond", "10"));
+        validClaimRatio = Double.parseDouble(properties.getProperty("LoadValidClaimRatio", "0.5"));
+        threads = Integer.parseInt(properties.getProperty("LoadThreads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        durationMillis = (long) (Double.parseDouble(properties.getProperty("LoadDurationSeconds", "30")) * 1000.0);
+
+        // all the synthetic players are driven from here (no ai threads), with no reaction time
+        Properties game = new Properties();
+        game.putAll(properties);
+        game.setProperty("HumanPlayers", Integer.toString(count));
+        game.setProperty("ComputerPlayers", "0");
+        game.setProperty("ComputerReactionSeconds", "0");
+        game.setProperty("ComputerReactionDeviation", "0");
+        game.setProperty("ComputerErrorRate", Double.toString(1.0 - validClaimRatio));
+        game.setProperty("InputRatePerSecond", "0"); // the presses are paced here
+        if (!game.containsKey("LogLevel")) game.setProperty("LogLevel", "OFF");
+        Config config = new Config(logger, game);
+        Util util = new UtilImpl(config);
+        env = new Env(logger, config, ui, util);
+
+        claimNanos = new AtomicLongArray(config.players);
+        claimLegal = new boolean[config.players];
+    }
+
+    /**
+     * A table and dealer with their synthetic players, and the strategy each one presses keys with.
+     */
+    private class Game {
+        final Table table;
+        final Dealer dealer;
+        final Player[] players;
+        final ComputerStrategy[] strategies;
+        final Thread thread;
+
+        Game() {
+            table = new Table(env);
+            players = new Player[env.config.players];
+            dealer = new Dealer(env, table, players);
+            strategies = new ComputerStrategy[players.length];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = new Player(env, dealer, table, i, true);
+                strategies[i] = new SmartStrategy(env, table, players[i], new Random());
+            }
+            table.setListener(LoadGenerator.this);
+            thread = env.threads.newThread("dealer", dealer);
+        }
+    }
+
+    /**
+     * Starts a new game.
+     */
+    private void startGame() {
+        game = new Game();
+        games++;
+        game.thread.start();
+    }
+
+    /**
+     * Runs the load test and prints the results.
+     */
+    public void run() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads, env.threads.factory("load", false));
+        long periodNanos = (long) (1_000_000_000L / pressesPerSecond);
+
+        startGame();
+        long start = System.nanoTime();
+        for (int i = 0; i < env.config.players; i++) {
+            int player = i;
+            executor.scheduleAtFixedRate(() -> press(player),
+                    ThreadLocalRandom.current().nextLong(periodNanos), periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long end = start + durationMillis * 1_000_000L;
+        for (long left = end - System.nanoTime(); left > 0; left = end - System.nanoTime()) {
+            game.thread.join(Math.max(1, Math.min(CHECK_MILLIS, left / 1_000_000L)));
+            if (game.thread.isAlive() && !deckRanOut(game)) continue;
+            game.dealer.terminate(); // the dealer would only end the game when the round times out
+            game.thread.join();
+            startGame();
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(durationMillis, TimeUnit.MILLISECONDS);
+        long elapsed = System.nanoTime() - start;
+        game.dealer.terminate();
+        game.thread.join();
+        report(elapsed);
+    }
+
+    /**
+     * Presses the next key of a player's strategy, or a random card if there is no set to claim (a player whose claim
+     * waits for its verdict does not press).
+     *
+     * @param player - the player id.
+     */
+    private void press(int player) {
+        Game current = game;
+        int slot = current.strategies[player].nextSlot();
+        if (slot < 0) {
+            if (current.players[player].getState() == Player.State.WAITING) return;
+            slot = randomCard(current.table);
+            if (slot < 0) return;
+            pressesRandom.incrementAndGet();
+        }
+        pressesSent.incrementAndGet();
+        current.players[player].keyPressed(slot);
+    }
+
+    /**
+     * @return - true iff the deck is empty and there is no set on the table.
+     */
+    private boolean deckRanOut(Game game) {
+        return game.dealer.getDeckSize() == 0
+                && game.table.solver.countSets(game.table.snapshot(new int[env.config.tableSize]), 1) == 0;
+    }
+
+    /**
+     * @return - a random slot with a card, or -1 if the table is empty.
+     */
+    private static int randomCard(Table table) {
+        int slots = table.slotToCard.length;
+        int first = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            int slot = (first + i) % slots;
+            if (table.slotToCard[slot] != null) return slot;
+        }
+        return -1;
+    }
+
+    @Override
+    public void keyDropped(int player, int slot) {
+        pressesDropped.incrementAndGet();
+    }
+
+    @Override
+    public void claimEnqueued(int player, int[] cards) {
+        claimsEnqueued.incrementAndGet();
+        claimLegal[player] = Arrays.stream(cards).allMatch(card -> card >= 0) && env.util.testSet(cards);
+        if (claimLegal[player]) claimsLegal.incrementAndGet();
+        claimNanos.set(player, System.nanoTime());
+    }
+
+    @Override
+    public void claimChecked(int player, boolean legal) {
+        long latency = System.nanoTime() - claimNanos.get(player);
+        claimsChecked.incrementAndGet();
+        if (legal == claimLegal[player]) verdictsCorrect.incrementAndGet();
+        if (!legal) penalties.incrementAndGet();
+        recordLatency(latency);
+    }
+
+    @Override
+    public void claimRejected(int player) {
+        long latency = System.nanoTime() - claimNanos.get(player);
+        claimsChecked.incrementAndGet();
+        claimsRejected.incrementAndGet();
+        recordLatency(latency);
+    }
+
+    private synchronized void recordLatency(long latency) {
+        if (latencyCount == latencies.length) latencies = Arrays.copyOf(latencies, latencyCount * 2);
+        latencies[latencyCount++] = latency;
+    }
+
+    private synchronized void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+
+        System.out.println("players: " + env.config.players + ", key presses per player per second: " + pressesPerSecond
+                + ", valid claim ratio: " + validClaimRatio + ", seconds: " + String.format("%.1f", seconds)
+                + ", games: " + games);
+        System.out.println("claims enqueued: " + claimsEnqueued.get() + ", checked: " + claimsChecked.get()
+                + String.format(" (%.1f per second)", claimsChecked.get() / seconds)
+                + String.format(", legal sets at claim time: %d (%.1f%%, configured %.1f%%)", claimsLegal.get(),
+                percent(claimsLegal.get(), claimsEnqueued.get()), 100 * validClaimRatio));
+        System.out.println("verdict latency (ms): p50 " + percentile(sorted, 0.5) + " p90 " + percentile(sorted, 0.9)
+                + " p99 " + percentile(sorted, 0.99) + " max " + percentile(sorted, 1.0));
+        System.out.println("claims rejected without penalty (cards taken by an earlier claim): " + claimsRejected.get());
+        System.out.println("penalties: " + penalties.get() + ", verdicts matching the table at claim time: "
+                + verdictsCorrect.get() + String.format(" (%.1f%%)", percent(verdictsCorrect.get(), claimsChecked.get() - claimsRejected.get())));
+        System.out.println("key presses sent: " + pressesSent.get() + String.format(" (%.1f per second)", pressesSent.get() / seconds)
+                + ", on random cards (no set to claim): " + pressesRandom.get() + ", dropped: " + pressesDropped.get()
+                + String.format(" (%.1f%%)", percent(pressesDropped.get(), pressesSent.get())));
+        for (String role : env.threads.report())
+            System.out.println("threads " + role);
+        for (String method : ui.report())
+            System.out.println("user interface " + method);
+    }
+
+    private static String percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return "-";
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return String.format("%.2f", sorted[Math.max(0, index)] / 1e6);
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        if (args.length > 0)
+            try (InputStream is = Files.newInputStream(Paths.get(args[0]))) {
+                properties.load(is);
+            }
+        Logger logger = Logger.getLogger("LoadGenerator");
+        logger.setUseParentHandlers(false);
+        new LoadGenerator(properties, logger).run();
+    }
+}
@@ -1,11 +1,13 @@
 package bguspl.set.ex;
 
+import bguspl.set.Config;
 import bguspl.set.Env;
 
-import java.util.*;
+import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class manages the players' threads and data
@@ -33,12 +35,51 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
+
+    /**
+     * A key press waiting to be handled by the player thread.
+     */
+    private static class KeyPress {
+        final int slot;
+        final long nanos;
+
+        KeyPress(int slot, long nanos) {
+            this.slot = slot;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * The key presses handed off by the input thread (see InputManager) to the player thread.
+     */
+    private final ConcurrentLinkedQueue<KeyPress> keyPresses = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of key presses handled from the queue, and the total and maximal time from a key press until the
+     * player thread handled it (in nanoseconds). Written by the player thread only.
+     */
+    private volatile long inputEvents;
+    private volatile long inputLatencyNanos;
+    private volatile long maxInputLatencyNanos;
+
+    /**
+     * Limits the rate of the player's key presses (see Config::inputRatePerSecond), whatever their source.
+     */
+    private final TokenBucket inputBucket = new TokenBucket();
+
+    /**
+     * The key presses dropped before they reached the table: keyboard auto-repeats, pairs of presses on the same slot
+     * that cancel each other, and presses above the rate limit.
+     */
+    private final LongAdder repeatedKeys = new LongAdder();
+    private final LongAdder collapsedKeys = new LongAdder();
+    private final LongAdder throttledKeys = new LongAdder();
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate key presses).
      */
-    private Thread aiThread;
+    private volatile Thread aiThread;
 
     /**
      * True iff the player is human (not a computer player).
@@ -51,19 +92,33 @@ public class Player implements Runnable {
     private volatile boolean terminate;
 
     /**
-     * The current score of the player.
+     * The current score of the player (written by the dealer thread, read by any thread).
+     */
+    private volatile int score;
+
+    /**
+     * The tokens and the state of the player packed in one word, so they always change together (with compare and
+     * set, by the key press threads and the dealer thread): bits 0-47 are the mask of the slots the player placed
+     * tokens on, bits 48-55 the number of tokens and bits 56-57 the state (see pack).
+     * The word is the source of truth for the player's tokens: the tokens on the table (see Table::tokenTable) follow
+     * the changes of its slot mask, and are only changed together with it, under tokenLock.
      */
-    private int score;
+    private final AtomicLong word;
 
     /**
-     * the list of the slots the player placed his tokens on
+     * Held while the slot mask of the word changes and the table follows it, so the two always agree (a change of the
+     * state alone, see setState, does not need it).
      */
-    public volatile ArrayList<Integer> selectedSlots;
+    private final Object tokenLock = new Object();
 
     /**
-     * the number of tokens the player placed
+     * The maximal number of slots (the size of the slot mask).
      */
-    private AtomicInteger tokensPlaced;
+    public static final int MAX_SLOTS = 48;
+
+    private static final long SLOTS_MASK = (1L << MAX_SLOTS) - 1;
+    private static final int COUNT_SHIFT = 48;
+    private static final int STATE_SHIFT = 56;
 
     /**
      * ACTIVE =
@@ -75,21 +130,7 @@ public class Player implements Runnable {
         FROZEN
     }
 
-    /**
-     *
-     */
-    private final int ADD_TOKEN = 1;
-
-
-    /**
-     * represents the state of the player
-     */
-    private State state;
-
-    /**
-     * the freezeTime in case of penalty or point
-     */
-    private volatile long freeze;
+    private static final State[] STATES = State.values();
 
     /**
      * The class constructor.
@@ -105,9 +146,9 @@ public class Player implements Runnable {
         this.table = table;
         this.id = id;
         this.human = human;
-        this.selectedSlots = new ArrayList<>();
-        this.tokensPlaced = new AtomicInteger(0);
-        state = State.ACTIVE;
+        if (env.config.tableSize > MAX_SLOTS)
+            throw new IllegalArgumentException("table size " + env.config.tableSize + " exceeds " + MAX_SLOTS + " slots");
+        word = new AtomicLong(pack(0, 0, State.ACTIVE));
     }
 
     /**
@@ -118,12 +159,30 @@ public class Player implements Runnable {
         playerThread = Thread.currentThread();
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         if (!human) createArtificialIntelligence();
+        env.clock.unregister(playerThread); // only the ai thread uses the clock (see Dealer::run)
 
-        while (!terminate) {
-            // TODO implement main player loop
+        while (!terminate) { // handle the queued key presses (the computer player presses are handled by the ai thread)
+            KeyPress press = keyPresses.poll();
+            if (press == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            KeyPress next = keyPresses.peek(); // only this thread takes presses, so the next one stays there
+            if (next != null && next.slot == press.slot
+                    && next.nanos - press.nanos <= env.config.inputCoalesceMillis * 1_000_000L) {
+                keyPresses.poll(); // the second press would undo the first one
+                collapsedKeys.add(2);
+                continue;
+            }
+            env.logger.info("key for slot " + press.slot + " was pressed by player " + (id + 1));
+            keyPressed(press.slot);
+            long latency = System.nanoTime() - press.nanos;
+            inputLatencyNanos += latency;
+            if (latency > maxInputLatencyNanos) maxInputLatencyNanos = latency;
+            inputEvents++;
         }
         if (!human) try {
-            aiThread.join();
+            aiThread.join(env.config.shutdownTimeoutMillis);
         } catch (InterruptedException ignored) {
         }
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
@@ -131,36 +190,24 @@ public class Player implements Runnable {
 
     /**
      * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * key presses, as decided by the player's strategy (see ComputerStrategy).
      */
     private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
+        ComputerStrategy strategy = ComputerStrategy.create(env, table, this, new Random());
+        aiThread = env.threads.newThread("computer", id, () -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
             while (!terminate) {
-                // TODO implement player key press simulator
                 try {
-                    Thread.sleep(env.config.tableDelayMillis);
-
-                    //  smart AI for testing
-//                    List<Integer> deck = Arrays.stream(table.slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-//                    List<int[]> set = env.util.findSets(deck,0);
-//                    for(int[] setfound : set){
-//                        for(int i = 0; i < setfound.length;i++){
-//                            try {
-//                                keyPressed(table.cardToSlot[setfound[i]]);
-//                            } catch (NullPointerException ignored){}
-//                        }
-//                    }
-//                    // // the real dumb AI
-                    Random random = new Random();
-                    int slot = random.nextInt(env.config.tableSize);
-                    keyPressed(slot);
+                    int slot = strategy.nextSlot();
+                    env.clock.sleep(strategy.delayMillis());
+                    if (slot >= 0) keyPressed(slot);
                 } catch (InterruptedException ignored) {
                 }
             }
+            env.clock.unregister(Thread.currentThread());
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
+        });
+        env.clock.register(aiThread);
         aiThread.start();
     }
 
@@ -168,75 +215,87 @@ public class Player implements Runnable {
      * Called when the game should be terminated.
      */
     public void terminate() {
-        // TODO implement
         terminate = true;
+        Thread ai = aiThread;
+        if (ai != null) ai.interrupt(); // ends the wait between two key presses
+        Thread thread = playerThread;
+        if (thread != null) LockSupport.unpark(thread);
     }
 
     /**
-     * This method is called when a key is pressed.
+     * Hands a key press off to the player thread (returns at once, the press is handled by keyPressed later).
      *
-     * @param slot - the slot corresponding to the key pressed.
+     * @param slot  - the slot corresponding to the key pressed.
+     * @param nanos - the time of the key press (in System::nanoTime terms).
      */
-    public void keyPressed(int slot) {
-        // TODO implement
-        if (table.canPlayerModifyTable) {
-            boolean exists = false;
-            for (Integer num : selectedSlots) { // checks whether the token already exists
-                if (num == slot) {
-                    exists = true;
-                }
-            }
-            if (tokensPlaced.get() < 3 && state == State.ACTIVE) { // if
-                env.logger.info("Player: " + id + " has enough tokens to put");
-                if (exists) { // if a token already exists
-                    removeToken(slot);
-                } else { //player hadn't placed a token
-                    addToken(slot);
-                }
-            } else if (tokensPlaced.get() >= 3 && state == State.ACTIVE) { //players state after a penalty
-                if (exists) {
-                    removeToken(slot);
-                }
-            }
-        } else {
-            env.logger.info("player tried to modify table even though he can't");
-        }
+    public void submitKeyPress(int slot, long nanos) {
+        keyPresses.add(new KeyPress(slot, nanos));
+        Thread thread = playerThread;
+        if (thread != null) LockSupport.unpark(thread);
     }
 
     /**
-     * removes token from slot
-     *
-     * @param slot = slot to add token to
+     * Counts a keyboard auto-repeat press that was dropped by the input thread.
      */
-    public void removeToken(int slot) {
-        Integer slotToObject = slot;
-        selectedSlots.remove(slotToObject);
-        env.logger.info("player: " + id + " number of tokens before removal" + tokensPlaced.get());
-        tokensPlaced.decrementAndGet();
-        env.logger.info("player: " + id + " number of tokens after removal" + tokensPlaced.get());
-        table.removeToken(id, slot);
+    public void keyRepeated() {
+        repeatedKeys.increment();
     }
 
     /**
-     * adds token to table if possible
+     * This method is called when a key is pressed.
+     * An active player toggles a token on the slot (a player with a full set of tokens can only remove them). Placing
+     * the last token of a set makes the player wait for the dealer to check the claim.
+     * Presses above the player's rate limit are dropped.
      *
-     * @param slot = slot to remove token from
-     */
-    public void addToken(int slot) {
-        selectedSlots.add(slot);
-        env.logger.info("player: " + id + " number of tokens before addition: " + tokensPlaced.get());
-        tokensPlaced.addAndGet(ADD_TOKEN); // adds one token
-        env.logger.info("player: " + id + " number of tokens after addition: " + tokensPlaced.get());
-        table.placeToken(id, slot);
-        if (tokensPlaced.get() == env.config.featureSize) { // if a player placed 3 tokens, he changes is state to WAITING
-            state = State.WAITING;
-            table.playersToCheck.add(new Integer(id));
-            env.logger.info("player placed 3 tokens state changed to : " + state);
-            env.logger.info("player : " + id + " added to table playersToCheck Queue"
-                    + " num of players to check : " + table.playersToCheck.size());
+     * @param slot - the slot corresponding to the key pressed.
+     */
+    public void keyPressed(int slot) {
+        Config config = env.config;
+        if (!inputBucket.tryAcquire(env.clock.currentTimeMillis(), config.inputRatePerSecond, config.inputBurst)) {
+            throttledKeys.increment();
+            table.listener.keyDropped(id, slot);
+            return;
+        }
+        long bit = 1L << slot;
+        long current, next;
+        synchronized (tokenLock) { // the dealer locks the table before it clears tokens under this lock
+            if (!table.canPlayerModifyTable) {
+                env.logger.info("player tried to modify table even though he can't");
+                table.listener.keyDropped(id, slot);
+                return;
+            }
+            do {
+                current = word.get();
+                long slots = slots(current);
+                int count = count(current);
+                if (state(current) != State.ACTIVE || ((slots & bit) == 0 && count >= env.config.featureSize)) {
+                    table.listener.keyDropped(id, slot);
+                    return;
+                }
+                if ((slots & bit) != 0) next = pack(slots & ~bit, count - 1, State.ACTIVE);
+                else next = pack(slots | bit, count + 1, count + 1 == env.config.featureSize ? State.WAITING : State.ACTIVE);
+            } while (!word.compareAndSet(current, next));
+            if ((slots(next) & bit) == 0) table.clearToken(id, slot);
+            else table.setToken(id, slot);
         }
-    }
 
+        if ((slots(next) & bit) == 0) {
+            env.logger.info("player: " + id + " number of tokens after removal " + count(next));
+            return;
+        }
+        env.logger.info("player: " + id + " number of tokens after addition: " + count(next));
+        if (state(next) == State.WAITING) {
+            int[] slots = toSlots(slots(next));
+            int[] cards = new int[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                Integer card = table.slotToCard[slots[i]];
+                cards[i] = card == null ? -1 : card;
+            }
+            table.listener.claimEnqueued(id, cards);
+            table.submitClaim(id);
+            env.logger.info("player placed 3 tokens state changed to : " + State.WAITING);
+        }
+    }
 
     /**
      * Award a point to a player and perform other related actions.
@@ -245,25 +304,10 @@ public class Player implements Runnable {
      * @post - the player's score is updated in the ui.
      */
     public void point() {
-        // TODO implement
-
-        //set it's state back to active
-        //clear players tokens
         score++;
-        freeze = System.currentTimeMillis() + env.config.pointFreezeMillis;
-        env.ui.setFreeze(id, env.config.penaltyFreezeMillis);
         env.ui.setScore(id, score);
-        while (System.currentTimeMillis() < freeze) {
-            env.ui.setFreeze(id, freeze - System.currentTimeMillis());
-            try {
-                Thread.sleep(env.config.tableDelayMillis);
-            } catch (InterruptedException ignored) {
-            }
-
-        }
-        clearPlayerToken();
-        env.logger.info("player tokens were cleared after freeze");
-        env.ui.setFreeze(id, env.config.pointFreezeMillis * - ADD_TOKEN );
+        replaceTokens(0, State.FROZEN); // the dealer unfreezes the player when the freeze time is over
+        env.logger.info("player : " + id + " got a point" + " set his state to: " + State.FROZEN);
 
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
     }
@@ -272,19 +316,71 @@ public class Player implements Runnable {
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        // TODO implement
-        state = State.FROZEN;
-        env.logger.info("player : " + id + " got a penalty" + " set his state to: " + state);
-
+        setState(State.FROZEN); // the tokens stay, the player may only remove them after the freeze
+        env.logger.info("player : " + id + " got a penalty" + " set his state to: " + State.FROZEN);
     }
 
+    /**
+     * Removes all the player's tokens and makes the player active.
+     */
     public void clearPlayerToken() {
-        selectedSlots.clear();
-        env.logger.info("player: " + id + " pickedSlots in Player class were cleared");
-        tokensPlaced = new AtomicInteger(0);
-        env.logger.info("player: " + id + " number of tokens were rest to " + tokensPlaced.get());
-        state = State.ACTIVE;
-        env.logger.info("player: " + id + " State after clearPlayerToken " + state);
+        replaceTokens(0, State.ACTIVE);
+        env.logger.info("player: " + id + " tokens were cleared, state after clearPlayerToken " + State.ACTIVE);
+    }
+
+    /**
+     * Drops the player's token from a slot whose card was removed from the table (if the player had one there).
+     * A player waiting for the dealer no longer has a full set of tokens, so it becomes active again.
+     *
+     * @param slot - the slot of the removed card.
+     */
+    public void discardSlot(int slot) {
+        long bit = 1L << slot;
+        long current;
+        synchronized (tokenLock) {
+            do {
+                current = word.get();
+                if ((slots(current) & bit) == 0) return;
+            } while (!word.compareAndSet(current, pack(slots(current) & ~bit, count(current) - 1,
+                    state(current) == State.WAITING ? State.ACTIVE : state(current))));
+            table.clearToken(id, slot);
+        }
+        env.logger.info("player: " + id + " token on slot: " + slot + " was discarded with its card");
+    }
+
+    /**
+     * Saves the player's score, tokens and state (the tokens and the state are read together) to a snapshot.
+     */
+    void save(GameSnapshot snapshot) {
+        long current = word.get();
+        snapshot.scores[id] = score;
+        snapshot.tokens[id] = slots(current);
+        snapshot.states[id] = state(current);
+    }
+
+    /**
+     * Restores the player's score, tokens and state from a snapshot (before the player thread starts).
+     */
+    void restore(GameSnapshot snapshot) {
+        score = snapshot.scores[id];
+        replaceTokens(snapshot.tokens[id], snapshot.states[id]);
+        env.ui.setScore(id, score);
+    }
+
+    /**
+     * Replaces the player's tokens and state, and makes the tokens on the table follow (e.g. for the dealer's clears).
+     *
+     * @param slots - the mask of the slots with the player's tokens.
+     * @param state - the new state.
+     */
+    private void replaceTokens(long slots, State state) {
+        synchronized (tokenLock) {
+            long previous = word.getAndSet(pack(slots, Long.bitCount(slots), state));
+            for (long mask = slots(previous) & ~slots; mask != 0; mask &= mask - 1)
+                table.clearToken(id, Long.numberOfTrailingZeros(mask));
+            for (long mask = slots & ~slots(previous); mask != 0; mask &= mask - 1)
+                table.setToken(id, Long.numberOfTrailingZeros(mask));
+        }
     }
 
     public int score() {
@@ -295,15 +391,105 @@ public class Player implements Runnable {
         this.score = score;
     }
 
+    /**
+     * Changes the state of the player (the tokens stay).
+     */
     public void setState(State state) {
-        this.state = state;
+        long current;
+        do {
+            current = word.get();
+        } while (!word.compareAndSet(current, pack(slots(current), count(current), state)));
+    }
+
+    /**
+     * @return - the number of key presses handled from the queue (see submitKeyPress).
+     */
+    public long getInputEvents() {
+        return inputEvents;
     }
 
-    public AtomicInteger getTokensPlaced() {
-        return tokensPlaced;
+    /**
+     * @return - the total time from the queued key presses until the player thread handled them (in nanoseconds).
+     */
+    public long getInputLatencyNanos() {
+        return inputLatencyNanos;
+    }
+
+    /**
+     * @return - the maximal time from a queued key press until the player thread handled it (in nanoseconds).
+     */
+    public long getMaxInputLatencyNanos() {
+        return maxInputLatencyNanos;
+    }
+
+    /**
+     * @return - the number of keyboard auto-repeat presses dropped.
+     */
+    public long getRepeatedKeys() {
+        return repeatedKeys.sum();
+    }
+
+    /**
+     * @return - the number of queued presses dropped in pairs that cancel each other.
+     */
+    public long getCollapsedKeys() {
+        return collapsedKeys.sum();
+    }
+
+    /**
+     * @return - the number of presses dropped above the rate limit.
+     */
+    public long getThrottledKeys() {
+        return throttledKeys.sum();
+    }
+
+    public int getTokensPlaced() {
+        return count(word.get());
     }
 
     public State getState() {
-        return state;
+        return state(word.get());
+    }
+
+    /**
+     * @return - the slots the player placed tokens on (in increasing order).
+     */
+    public int[] selectedSlots() {
+        return toSlots(slots(word.get()));
+    }
+
+    /**
+     * @return - the slots of the player's claim (in increasing order), or null if the player is not waiting for the
+     * dealer to check a claim.
+     */
+    public int[] claimedSlots() {
+        long current = word.get();
+        return state(current) == State.WAITING ? toSlots(slots(current)) : null;
+    }
+
+    private static long pack(long slots, int count, State state) {
+        return slots | (long) count << COUNT_SHIFT | (long) state.ordinal() << STATE_SHIFT;
+    }
+
+    private static long slots(long word) {
+        return word & SLOTS_MASK;
+    }
+
+    private static int count(long word) {
+        return (int) (word >>> COUNT_SHIFT) & 0xFF;
+    }
+
+    private static State state(long word) {
+        return STATES[(int) (word >>> STATE_SHIFT) & 0x3];
+    }
+
+    /**
+     * @return - the slots in a slot mask (in increasing order).
+     */
+    private static int[] toSlots(long mask) {
+        int[] slots = new int[Long.bitCount(mask)];
+        for (int i = 0; mask != 0; i++, mask &= mask - 1)
+            slots[i] = Long.numberOfTrailingZeros(mask);
+        return slots;
     }
 }
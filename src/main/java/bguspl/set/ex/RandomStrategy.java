@@ -0,0 +1,33 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * A computer player strategy that presses random slots at a fixed rate.
+ */
+public class RandomStrategy implements ComputerStrategy {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    private final Random random;
+
+    public RandomStrategy(Env env, Random random) {
+        this.env = env;
+        this.random = random;
+    }
+
+    @Override
+    public int nextSlot() {
+        return random.nextInt(env.config.tableSize);
+    }
+
+    @Override
+    public long delayMillis() {
+        return env.config.computerKeyPressMillis;
+    }
+}
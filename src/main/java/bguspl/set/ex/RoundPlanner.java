@@ -0,0 +1,134 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prepares the deal of the next round (the cards and their slots, and whether any set is left in the game) on a
+ * background thread while the current round is played, so the dealer only has to swap the table at the timeout.
+ * A plan is made for a version of the cards in the game; the dealer bumps the version whenever cards leave the game and
+ * a plan for an older version is not used.
+ * The prepare and take methods are called by the dealer thread only.
+ */
+public class RoundPlanner {
+
+    /**
+     * A prepared deal.
+     */
+    public static class Plan {
+
+        /**
+         * The version of the cards in the game the plan was made for.
+         */
+        public final long version;
+
+        /**
+         * The card for each slot (-1 for an empty slot).
+         */
+        public final int[] cards;
+
+        /**
+         * True iff there is a legal set among the cards in the game.
+         */
+        public final boolean hasSets;
+
+        Plan(long version, int[] cards, boolean hasSets) {
+            this.version = version;
+            this.cards = cards;
+            this.hasSets = hasSets;
+        }
+    }
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    private final SetSolver solver;
+
+    private final DealPolicy dealPolicy;
+
+    private final Random random;
+
+    /**
+     * Runs the planning (a single daemon thread, so a running plan never delays the exit), or null to plan on the
+     * dealer thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The plan being prepared or the last one prepared (null if none).
+     */
+    private Future<Plan> pending;
+
+    /**
+     * @param background - true to plan on a background thread, false to not prepare plans at all (the dealer then
+     *                   plans each round on its own thread when the round starts, so the plans are deterministic).
+     */
+    public RoundPlanner(Env env, SetSolver solver, DealPolicy dealPolicy, Random random, boolean background) {
+        this.env = env;
+        this.solver = solver;
+        this.dealPolicy = dealPolicy;
+        this.random = random;
+        executor = !background ? null : Executors.newSingleThreadExecutor(env.threads.factory("round-planner", true));
+    }
+
+    /**
+     * Starts preparing the next round in the background (replaces the plan being prepared, if any).
+     *
+     * @param cards   - the cards in the game (negative entries are ignored), the array must not be modified later.
+     * @param version - the version of these cards.
+     */
+    public void prepare(int[] cards, long version) {
+        if (executor == null) return;
+        if (pending != null) pending.cancel(false);
+        pending = executor.submit(() -> plan(cards, version));
+    }
+
+    /**
+     * Takes the prepared plan if it is ready.
+     *
+     * @param version - the current version of the cards in the game.
+     * @return - the plan, or null if it is not ready yet or was made for another version.
+     */
+    public Plan take(long version) {
+        if (pending == null || !pending.isDone() || pending.isCancelled()) return null;
+        try {
+            Plan plan = pending.get();
+            pending = null;
+            return plan.version == version ? plan : null;
+        } catch (InterruptedException | ExecutionException e) {
+            env.logger.warning("preparing the next round failed: " + e);
+            pending = null;
+            return null;
+        }
+    }
+
+    /**
+     * Plans a round (in the calling thread).
+     *
+     * @param cards   - the cards in the game (negative entries are ignored).
+     * @param version - the version of these cards.
+     * @return - the plan.
+     */
+    public Plan plan(int[] cards, long version) {
+        IndexPool deck = new IndexPool(env.config.deckSize, false);
+        for (int card : cards)
+            if (card >= 0) deck.add(card);
+        int[] table = new int[env.config.tableSize];
+        Arrays.fill(table, -1);
+        int[] drawn = dealPolicy.draw(table, env.config.baseTableSize, deck, random);
+        System.arraycopy(drawn, 0, table, 0, drawn.length); // the draws are random, so are the slots
+        return new Plan(version, table, solver.countSets(cards, 1) > 0);
+    }
+
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,354 @@
+package bguspl.set.ex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * The cumulative statistics of the players across games, by player name (see Config::playerNames), kept in a
+ * memory-mapped file of fixed size records.
+ * <p>
+ * The records are an open addressing hash table (a name is found in O(1) probes on average). Each slot holds two
+ * copies of its record, each with a sequence number and a checksum; an update writes the older copy, so a crash in
+ * the middle of an update leaves the previous copy valid. An update locks only its slot (a lock stripe within the
+ * process and a file region lock across processes), so several games can update the file at once. The lock stripes
+ * are shared by all the score boards of a file in the process (the file region locks are held by the whole process,
+ * so two of them must never lock the same region at once).
+ * <p>
+ * An update is written to the mapped memory only, which survives a crash of the process; flush writes the updates to
+ * the disk (e.g. once per game, see Dealer), as does close.
+ */
+public class ScoreBoard implements Closeable {
+
+    /**
+     * The statistics of a player.
+     */
+    public static class Stats {
+        public long games;
+        public long wins;
+        public long sets;
+        public long penalties;
+
+        /**
+         * The reaction times of the sets (from the deal until the claim).
+         */
+        public long reactions;
+        public long reactionMillis;
+        public long fastestMillis;
+        public long slowestMillis;
+
+        /**
+         * Adds the reaction time of a set.
+         */
+        public void reaction(long millis) {
+            fastestMillis = reactions == 0 ? millis : Math.min(fastestMillis, millis);
+            slowestMillis = reactions == 0 ? millis : Math.max(slowestMillis, millis);
+            reactions++;
+            reactionMillis += millis;
+        }
+
+        void add(Stats other) {
+            if (other.reactions > 0) {
+                fastestMillis = reactions == 0 ? other.fastestMillis : Math.min(fastestMillis, other.fastestMillis);
+                slowestMillis = reactions == 0 ? other.slowestMillis : Math.max(slowestMillis, other.slowestMillis);
+            }
+            games += other.games;
+            wins += other.wins;
+            sets += other.sets;
+            penalties += other.penalties;
+            reactions += other.reactions;
+            reactionMillis += other.reactionMillis;
+        }
+
+        public double meanReactionMillis() {
+            return reactions == 0 ? 0 : (double) reactionMillis / reactions;
+        }
+
+        @Override
+        public String toString() {
+            return games + " games, " + wins + " wins, " + sets + " sets, " + penalties + " penalties, reaction "
+                    + String.format("%.0f", meanReactionMillis()) + " ms (" + fastestMillis + "-" + slowestMillis + ")";
+        }
+    }
+
+    private static final int MAGIC = 0x53455453; // "SETS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    /**
+     * The longest name stored (in UTF-8 bytes, longer names are cut).
+     */
+    static final int NAME_BYTES = 48;
+
+    // the layout of a record copy
+    private static final int SEQUENCE = 0;
+    private static final int NAME_LENGTH = 8;
+    private static final int NAME = 12;
+    private static final int GAMES = 64;
+    private static final int WINS = 72;
+    private static final int SETS = 80;
+    private static final int PENALTIES = 88;
+    private static final int REACTIONS = 96;
+    private static final int REACTION_MILLIS = 104;
+    private static final int FASTEST = 112;
+    private static final int SLOWEST = 120;
+    private static final int CHECKSUM = 128; // of the bytes before it
+    private static final int COPY_SIZE = 136;
+    private static final int SLOT_SIZE = 2 * COPY_SIZE;
+
+    private static final int STRIPES = 64;
+
+    /**
+     * The locks of a file, shared by its score boards in this process.
+     */
+    private static class FileLocks {
+        final ReentrantLock header = new ReentrantLock();
+
+        /**
+         * Serializes the access to the slots (a slot uses stripe slot % STRIPES).
+         */
+        final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+        int users; // guarded by OPEN_FILES
+
+        FileLocks() {
+            for (int i = 0; i < STRIPES; i++)
+                stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * The locks of the open files, by real path.
+     */
+    private static final Map<Path, FileLocks> OPEN_FILES = new HashMap<>();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final ReentrantLock[] stripes;
+    private boolean closed;
+
+    private ScoreBoard(Path file, FileChannel channel, MappedByteBuffer buffer, int capacity, FileLocks locks) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        stripes = locks.stripes;
+    }
+
+    private static FileLocks acquire(Path file) {
+        synchronized (OPEN_FILES) {
+            FileLocks locks = OPEN_FILES.computeIfAbsent(file, path -> new FileLocks());
+            locks.users++;
+            return locks;
+        }
+    }
+
+    private static void release(Path file) {
+        synchronized (OPEN_FILES) {
+            FileLocks locks = OPEN_FILES.get(file);
+            if (--locks.users == 0) OPEN_FILES.remove(file);
+        }
+    }
+
+    /**
+     * Opens a score board file, creating it if needed.
+     *
+     * @param capacity - the number of players a new file has room for (an existing file keeps its capacity).
+     */
+    public static ScoreBoard open(Path file, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Path realFile;
+        try {
+            realFile = file.toRealPath();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        FileLocks locks = acquire(realFile);
+        locks.header.lock();
+        try (FileLock ignored = channel.lock(0, HEADER_SIZE, false)) { // another game may be creating the file
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() == 0) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(COPY_SIZE).rewind();
+                channel.write(header, 0);
+                channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) capacity * SLOT_SIZE - 1);
+            } else {
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                    throw new IOException(file + " is not a score board file");
+                capacity = header.getInt();
+                if (header.getInt() != COPY_SIZE || channel.size() < HEADER_SIZE + (long) capacity * SLOT_SIZE)
+                    throw new IOException(file + " is damaged");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            return new ScoreBoard(realFile, channel, buffer, capacity, locks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            release(realFile);
+            throw e;
+        } finally {
+            locks.header.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return - the statistics of a player, or null if the player has none.
+     */
+    public Stats get(String name) throws IOException {
+        byte[] key = key(name);
+        for (int probe = 0, slot = home(key); probe < capacity; probe++, slot = (slot + 1) % capacity) {
+            ReentrantLock stripe = stripes[slot % STRIPES];
+            stripe.lock();
+            try (FileLock ignored = channel.lock(slotOffset(slot), SLOT_SIZE, false)) {
+                int copy = latestCopy(slot);
+                if (copy < 0) return null; // an empty slot ends the probe sequence
+                if (hasName(copy, key)) return read(copy);
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the statistics of a game (or several) to a player's statistics.
+     *
+     * @throws IllegalStateException - if the score board is full.
+     */
+    public void add(String name, Stats stats) throws IOException {
+        byte[] key = key(name);
+        for (int probe = 0, slot = home(key); probe < capacity; probe++, slot = (slot + 1) % capacity) {
+            ReentrantLock stripe = stripes[slot % STRIPES];
+            stripe.lock();
+            try (FileLock ignored = channel.lock(slotOffset(slot), SLOT_SIZE, false)) {
+                int copy = latestCopy(slot);
+                if (copy >= 0 && !hasName(copy, key)) continue;
+                Stats total = copy < 0 ? new Stats() : read(copy);
+                total.add(stats);
+                long sequence = copy < 0 ? 1 : buffer.getLong(copy + SEQUENCE) + 1;
+                write(copy == copyOffset(slot, 0) ? copyOffset(slot, 1) : copyOffset(slot, 0), sequence, key, total);
+                return;
+            } finally {
+                stripe.unlock();
+            }
+        }
+        throw new IllegalStateException("the score board is full (" + capacity + " players)");
+    }
+
+    /**
+     * Writes the updates to the disk.
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            buffer.force();
+            channel.close();
+        } finally {
+            release(file);
+        }
+    }
+
+    private static byte[] key(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= NAME_BYTES ? bytes : Arrays.copyOf(bytes, NAME_BYTES);
+    }
+
+    private int home(byte[] key) {
+        int hash = Arrays.hashCode(key);
+        return Math.floorMod(hash ^ (hash >>> 16), capacity);
+    }
+
+    private static long slotOffset(int slot) {
+        return HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private static int copyOffset(int slot, int copy) {
+        return (int) slotOffset(slot) + copy * COPY_SIZE;
+    }
+
+    /**
+     * @return - the offset of the valid copy of the slot's record with the highest sequence, or -1 if the slot is empty.
+     */
+    private int latestCopy(int slot) {
+        int latest = -1;
+        long latestSequence = 0;
+        for (int copy = 0; copy < 2; copy++) {
+            int offset = copyOffset(slot, copy);
+            long sequence = buffer.getLong(offset + SEQUENCE);
+            if (sequence > latestSequence && checksum(offset) == buffer.getLong(offset + CHECKSUM)) {
+                latest = offset;
+                latestSequence = sequence;
+            }
+        }
+        return latest;
+    }
+
+    private boolean hasName(int copy, byte[] key) {
+        if (buffer.getInt(copy + NAME_LENGTH) != key.length) return false;
+        for (int i = 0; i < key.length; i++)
+            if (buffer.get(copy + NAME + i) != key[i]) return false;
+        return true;
+    }
+
+    private Stats read(int copy) {
+        Stats stats = new Stats();
+        stats.games = buffer.getLong(copy + GAMES);
+        stats.wins = buffer.getLong(copy + WINS);
+        stats.sets = buffer.getLong(copy + SETS);
+        stats.penalties = buffer.getLong(copy + PENALTIES);
+        stats.reactions = buffer.getLong(copy + REACTIONS);
+        stats.reactionMillis = buffer.getLong(copy + REACTION_MILLIS);
+        stats.fastestMillis = buffer.getLong(copy + FASTEST);
+        stats.slowestMillis = buffer.getLong(copy + SLOWEST);
+        return stats;
+    }
+
+    private void write(int copy, long sequence, byte[] key, Stats stats) {
+        buffer.putLong(copy + SEQUENCE, sequence);
+        buffer.putInt(copy + NAME_LENGTH, key.length);
+        for (int i = 0; i < NAME_BYTES; i++)
+            buffer.put(copy + NAME + i, i < key.length ? key[i] : 0);
+        buffer.putLong(copy + GAMES, stats.games);
+        buffer.putLong(copy + WINS, stats.wins);
+        buffer.putLong(copy + SETS, stats.sets);
+        buffer.putLong(copy + PENALTIES, stats.penalties);
+        buffer.putLong(copy + REACTIONS, stats.reactions);
+        buffer.putLong(copy + REACTION_MILLIS, stats.reactionMillis);
+        buffer.putLong(copy + FASTEST, stats.fastestMillis);
+        buffer.putLong(copy + SLOWEST, stats.slowestMillis);
+        buffer.putLong(copy + CHECKSUM, checksum(copy)); // last, a torn copy does not match its checksum
+    }
+
+    private long checksum(int copy) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < CHECKSUM; i++)
+            crc.update(buffer.get(copy + i));
+        return crc.getValue();
+    }
+}
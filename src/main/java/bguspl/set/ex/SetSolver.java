@@ -0,0 +1,150 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.util.Arrays;
+
+/**
+ * Finds legal sets without testing every combination of cards: for each combination of featureSize - 1 cards there is
+ * exactly one card that completes a legal set, so it is enough to compute it and look it up.
+ * With the default configuration this finds all the sets in n cards in O(n^2) instead of O(n^3).
+ * Thread safe (holds no mutable state). Requires featureSize >= 3.
+ */
+public class SetSolver {
+
+    /**
+     * The number of features on the cards and the number of choices for each feature.
+     */
+    private final int featureCount;
+    private final int featureSize;
+
+    /**
+     * The features of each card (same order as Util::cardToFeatures).
+     */
+    private final int[][] features;
+
+    /**
+     * The value of each feature position in a card id.
+     */
+    private final int[] weights;
+
+    /**
+     * The sum of all feature values (0 + 1 + ... + featureSize - 1).
+     */
+    private final int valuesSum;
+
+    public SetSolver(Config config) {
+        featureCount = config.featureCount;
+        featureSize = config.featureSize;
+        weights = new int[featureCount];
+        for (int i = featureCount - 1, weight = 1; i >= 0; --i, weight *= featureSize)
+            weights[i] = weight;
+        features = new int[config.deckSize][featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int i = 0; i < featureCount; ++i)
+                features[card][i] = card / weights[i] % featureSize;
+        valuesSum = featureSize * (featureSize - 1) / 2;
+    }
+
+    /**
+     * @return - the number of cards in a legal set.
+     */
+    public int setSize() {
+        return featureSize;
+    }
+
+    /**
+     * Computes the card that completes the given cards to a legal set.
+     *
+     * @param cards - featureSize - 1 distinct card ids.
+     * @return - the missing card id, or -1 if no card completes these cards to a legal set.
+     */
+    public int complete(int[] cards) {
+        int card = 0;
+        for (int i = 0; i < featureCount; ++i) {
+            int first = features[cards[0]][i];
+            boolean same = true;
+            int seen = 0, sum = 0;
+            for (int c : cards) {
+                int value = features[c][i];
+                same &= value == first;
+                seen |= 1 << value;
+                sum += value;
+            }
+            if (same) card += first * weights[i];
+            else if (Integer.bitCount(seen) == cards.length) card += (valuesSum - sum) * weights[i];
+            else return -1;
+        }
+        return card;
+    }
+
+    /**
+     * Finds up to count legal sets among the given cards.
+     *
+     * @param cards - an array of card ids, negative entries (e.g. empty slots) are ignored.
+     * @param count - the maximum number of sets to find.
+     * @param found - receives the positions (in cards) of the sets found, may be null if only the count is needed.
+     * @return - the number of sets found.
+     */
+    public int findSets(int[] cards, int count, int[][] found) {
+        if (count <= 0) return 0;
+        int[] position = new int[features.length];
+        Arrays.fill(position, -1);
+        int[] present = new int[cards.length];
+        int n = 0;
+        for (int i = 0; i < cards.length; ++i)
+            if (cards[i] >= 0) {
+                position[cards[i]] = i;
+                present[n++] = i;
+            }
+
+        int r = featureSize - 1;
+        if (n < featureSize || r < 1) return 0;
+        int[] combination = new int[r];
+        int[] partial = new int[r];
+        for (int i = 0; i < r; ++i) combination[i] = i;
+
+        int sets = 0;
+        while (true) {
+            for (int i = 0; i < r; ++i) partial[i] = cards[present[combination[i]]];
+            int missing = complete(partial);
+            // count every set once: the missing card must come after the combination
+            if (missing >= 0 && position[missing] > present[combination[r - 1]]) {
+                if (found != null) {
+                    for (int i = 0; i < r; ++i) found[sets][i] = present[combination[i]];
+                    found[sets][r] = position[missing];
+                }
+                if (++sets >= count) return sets;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t >= 0 && combination[t] == n - r + t) --t;
+            if (t < 0) return sets;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+    }
+
+    /**
+     * Finds a single legal set among the given cards.
+     *
+     * @param cards - an array of card ids, negative entries (e.g. empty slots) are ignored.
+     * @return - the positions (in cards) of the set found, or null if there is none.
+     */
+    public int[] findSet(int[] cards) {
+        int[][] found = new int[1][featureSize];
+        return findSets(cards, 1, found) > 0 ? found[0] : null;
+    }
+
+    /**
+     * Counts the legal sets among the given cards.
+     *
+     * @param cards - an array of card ids, negative entries (e.g. empty slots) are ignored.
+     * @param limit - stop counting after this many sets.
+     * @return - the number of sets found (at most limit).
+     */
+    public int countSets(int[] cards, int limit) {
+        return findSets(cards, limit, null);
+    }
+}
@@ -0,0 +1,297 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a game as a discrete event simulation: the dealer and the (computer) players follow the regular game rules, but
+ * they are driven by a single thread from a queue of timed events in virtual time (see VirtualClock), so a game takes
+ * milliseconds instead of minutes. A game is deterministic for a given seed.
+ * <p>
+ * Every player is simulated with its configured computer strategy (the human players are simulated as well).
+ * <p>
+ * Usage: Simulation [properties file]. On top of the regular configuration keys the file may contain:
+ * SimulationGames (the number of games to run), SimulationSeed (the seed of the first game, the following games use
+ * the next seeds) and SimulationMaxSeconds (the virtual time after which a game is stopped).
+ */
+public class Simulation implements GameListener {
+
+    /**
+     * An action at a virtual time (the actions at the same time run in the order they were scheduled).
+     */
+    private static class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final Runnable action;
+
+        Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (time != other.time) return Long.compare(time, other.time);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The outcome of a simulated game.
+     */
+    public static class Result {
+        public final long seed;
+        public final long virtualMillis;
+        public final long events;
+        public final int rounds;
+        public final int timeouts;
+        public final int points;
+        public final int penalties;
+        public final int[] scores;
+        public final int[] playerPenalties;
+
+        Result(long seed, long virtualMillis, long events, int rounds, int timeouts, int points, int penalties,
+               int[] scores, int[] playerPenalties) {
+            this.seed = seed;
+            this.virtualMillis = virtualMillis;
+            this.events = events;
+            this.rounds = rounds;
+            this.timeouts = timeouts;
+            this.points = points;
+            this.penalties = penalties;
+            this.scores = scores;
+            this.playerPenalties = playerPenalties;
+        }
+
+        @Override
+        public String toString() {
+            return "seed " + seed + ": " + virtualMillis / 1000.0 + " s, " + events + " events, " + rounds + " rounds ("
+                    + timeouts + " timeouts), " + points + " points, " + penalties + " penalties, scores "
+                    + Arrays.toString(scores);
+        }
+    }
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    private final VirtualClock clock;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Dealer dealer;
+    private final Player[] players;
+    private final ComputerStrategy[] strategies;
+
+    private final long seed;
+
+    /**
+     * The events waiting to happen.
+     */
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long sequence;
+    private long eventsRun;
+
+    /**
+     * The virtual time after which the game is stopped.
+     */
+    private long maxMillis;
+
+    private boolean finished;
+
+    /**
+     * The counters reported in the result.
+     */
+    private int rounds;
+    private int timeouts;
+    private int points;
+    private int penalties;
+    private final int[] playerPenalties;
+
+    /**
+     * @param logger - the logger (the game entities log a lot, so a logger without handlers is recommended).
+     * @param config - the game configuration (all the players are simulated as computer players).
+     * @param seed   - the seed of all the random decisions in the game.
+     */
+    public Simulation(Logger logger, Config config, long seed) {
+        this.seed = seed;
+        clock = new VirtualClock();
+        Util util = new UtilImpl(config);
+        env = new Env(logger, config, new UserInterfaceHeadless(), util, clock);
+
+        Random random = new Random(seed);
+        table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players, new Random(random.nextLong()));
+        strategies = new ComputerStrategy[players.length];
+        playerPenalties = new int[players.length];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(env, dealer, table, i, false);
+            strategies[i] = ComputerStrategy.create(env, table, players[i], new Random(random.nextLong()));
+        }
+        table.setListener(this);
+    }
+
+    /**
+     * Runs the game to its end.
+     *
+     * @param maxMillis - the virtual time after which the game is stopped.
+     * @return - the result of the game.
+     */
+    public Result run(long maxMillis) {
+        this.maxMillis = maxMillis;
+        schedule(0, this::start);
+        for (int i = 0; i < players.length; i++) {
+            int id = i;
+            schedule(0, () -> playerAction(id));
+        }
+        Event event;
+        while (!finished && (event = events.poll()) != null) {
+            clock.advanceTo(event.time);
+            event.action.run();
+            eventsRun++;
+        }
+        int[] scores = Arrays.stream(players).mapToInt(Player::score).toArray();
+        return new Result(seed, clock.currentTimeMillis(), eventsRun, rounds, timeouts, points, penalties, scores,
+                playerPenalties.clone());
+    }
+
+    /**
+     * Schedules an action.
+     *
+     * @param delayMillis - the virtual time from now until the action.
+     */
+    private void schedule(long delayMillis, Runnable action) {
+        events.add(new Event(clock.currentTimeMillis() + delayMillis, sequence++, action));
+    }
+
+    private void start() {
+        if (dealer.shouldFinish()) {
+            finish();
+            return;
+        }
+        rounds++;
+        dealer.placeCardsOnTable();
+        schedule(Dealer.TIMER_TICK_MILLIS, this::tick);
+    }
+
+    /**
+     * A tick of the dealer's timer loop (see Dealer::run).
+     */
+    private void tick() {
+        if (finished) return;
+        if (!dealer.roundTimedOut()) {
+            dealer.tick();
+        } else {
+            timeouts++;
+            dealer.endRound();
+            if (dealer.shouldFinish()) {
+                finish();
+                return;
+            }
+            rounds++;
+            dealer.placeCardsOnTable();
+        }
+        if (clock.currentTimeMillis() >= maxMillis) finish();
+        else schedule(Dealer.TIMER_TICK_MILLIS, this::tick);
+    }
+
+    /**
+     * A computer player decides on a key press and presses it after the strategy's delay (see Player's ai thread).
+     * The delay is at least a millisecond, so the virtual time moves forward.
+     */
+    private void playerAction(int id) {
+        if (finished) return;
+        int slot = strategies[id].nextSlot();
+        schedule(Math.max(1, strategies[id].delayMillis()), () -> {
+            if (finished) return;
+            if (slot >= 0) players[id].keyPressed(slot);
+            if (!table.playersToCheck.isEmpty()) schedule(0, this::checkClaims); // the dealer is woken up
+            playerAction(id);
+        });
+    }
+
+    private void checkClaims() {
+        if (!finished && !table.playersToCheck.isEmpty()) dealer.tick();
+    }
+
+    private void finish() {
+        finished = true;
+        dealer.finish();
+    }
+
+    @Override
+    public void claimChecked(int player, boolean legal) {
+        if (legal) {
+            points++;
+        } else {
+            penalties++;
+            playerPenalties[player]++;
+        }
+    }
+
+    /**
+     * Creates the configuration of a simulated game: the human players are replaced by computer players.
+     *
+     * @param properties - the game configuration properties.
+     */
+    static Config simulatedConfig(Logger logger, Properties properties) {
+        Properties game = new Properties();
+        game.putAll(properties);
+        game.setProperty("ComputerPlayers", Integer.toString(
+                Integer.parseInt(properties.getProperty("HumanPlayers", "2")) + Integer.parseInt(properties.getProperty("ComputerPlayers", "0"))));
+        game.setProperty("HumanPlayers", "0");
+        return new Config(logger, game);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Properties properties = new Properties();
+        if (args.length > 0)
+            try (InputStream is = Files.newInputStream(Paths.get(args[0]))) {
+                properties.load(is);
+            }
+        int games = Integer.parseInt(properties.getProperty("SimulationGames", "100"));
+        long seed = Long.parseLong(properties.getProperty("SimulationSeed", "1"));
+        long maxMillis = (long) (Double.parseDouble(properties.getProperty("SimulationMaxSeconds", "3600")) * 1000.0);
+
+        Logger logger = Logger.getLogger("Simulation");
+        logger.setUseParentHandlers(false);
+        Config config = simulatedConfig(logger, properties);
+        logger.setLevel(Level.OFF); // after the configuration, which sets the level, so the games skip the logging
+
+        long start = System.nanoTime();
+        long virtualMillis = 0, timeouts = 0, points = 0, penalties = 0;
+        for (int i = 0; i < games; i++) {
+            Result result = new Simulation(logger, config, seed + i).run(maxMillis);
+            System.out.println(result);
+            virtualMillis += result.virtualMillis;
+            timeouts += result.timeouts;
+            points += result.points;
+            penalties += result.penalties;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games in %.2f s (%.1f virtual seconds per real second)%n", games, seconds, virtualMillis / 1000.0 / seconds);
+        System.out.printf("per game: %.1f virtual s, %.2f timeouts, %.1f points, %.1f penalties (%.1f%% of the claims)%n",
+                virtualMillis / 1000.0 / games, (double) timeouts / games, (double) points / games,
+                (double) penalties / games, points + penalties == 0 ? 0 : 100.0 * penalties / (points + penalties));
+    }
+}
@@ -0,0 +1,134 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * A computer player strategy that looks for a set on the table and presses its slots.
+ * The time until the first key press of each set is drawn from a log-normal distribution (median and sigma are set by
+ * the ComputerReactionSeconds and ComputerReactionDeviation configuration keys) and every set has a chance to be
+ * claimed with a wrong card instead (ComputerErrorRate), so players of different strength can be mixed in one game.
+ */
+public class SmartStrategy implements ComputerStrategy {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Player player;
+
+    private final Random random;
+
+    /**
+     * A copy of the cards on the table the current plan was made from (reused between plans).
+     */
+    private final int[] snapshot;
+
+    /**
+     * The planned key presses and the card expected in each pressed slot.
+     */
+    private final int[] plannedSlots;
+    private final int[] plannedCards;
+
+    /**
+     * The number of planned key presses and the index of the next one.
+     */
+    private int planned;
+    private int next;
+
+    /**
+     * The delay before the key press returned by the last call to nextSlot.
+     */
+    private long delay;
+
+    public SmartStrategy(Env env, Table table, Player player, Random random) {
+        this.env = env;
+        this.table = table;
+        this.player = player;
+        this.random = random;
+        snapshot = new int[table.slotToCard.length];
+        plannedSlots = new int[2 * table.solver.setSize()];
+        plannedCards = new int[plannedSlots.length];
+    }
+
+    @Override
+    public int nextSlot() {
+        if (next < planned) {
+            int slot = plannedSlots[next];
+            Integer card = table.slotToCard[slot];
+            if (card != null && card == plannedCards[next]) { // the table did not change since the plan was made
+                next++;
+                delay = env.config.computerKeyPressMillis;
+                return slot;
+            }
+        }
+        return plan();
+    }
+
+    @Override
+    public long delayMillis() {
+        return delay;
+    }
+
+    /**
+     * Looks for a set on the table and plans the key presses needed to claim it.
+     *
+     * @return - the first slot to press, or -1 if there is nothing to press.
+     */
+    private int plan() {
+        planned = next = 0;
+        delay = env.config.computerKeyPressMillis;
+        int[] set = table.solver.findSet(table.snapshot(snapshot));
+        if (set == null) return -1;
+
+        if (random.nextDouble() < env.config.computerErrorRate(player.id)) { // replace one card by a random other card
+            int slot = randomCardOutside(set);
+            if (slot >= 0) set[random.nextInt(set.length)] = slot;
+        }
+
+        // first remove the tokens that are not part of the set, then place the missing ones
+        int[] selected = player.selectedSlots();
+        for (int slot : selected)
+            if (!contains(set, set.length, slot) && snapshot[slot] >= 0) addPress(slot);
+        for (int slot : set)
+            if (!contains(selected, selected.length, slot)) addPress(slot);
+        if (planned == 0) return -1;
+
+        long median = env.config.computerReactionMillis(player.id);
+        double sigma = env.config.computerReactionDeviation(player.id);
+        delay = (long) (median * Math.exp(sigma * random.nextGaussian()));
+        next = 1;
+        return plannedSlots[0];
+    }
+
+    /**
+     * @param set - the slots of a set on the table.
+     * @return - a slot chosen uniformly among the slots with a card that are not part of the set, or -1 if there is none.
+     */
+    private int randomCardOutside(int[] set) {
+        int chosen = -1;
+        int candidates = 0;
+        for (int slot = 0; slot < snapshot.length; ++slot)
+            if (snapshot[slot] >= 0 && !contains(set, set.length, slot) && random.nextInt(++candidates) == 0)
+                chosen = slot;
+        return chosen;
+    }
+
+    private void addPress(int slot) {
+        plannedSlots[planned] = slot;
+        plannedCards[planned] = snapshot[slot];
+        planned++;
+    }
+
+    private static boolean contains(int[] slots, int length, int slot) {
+        for (int i = 0; i < length; ++i)
+            if (slots[i] == slot) return true;
+        return false;
+    }
+}
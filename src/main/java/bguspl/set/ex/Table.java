@@ -28,6 +28,11 @@ public class Table {
      */
     protected final Integer[] cardToSlot; // slot per card (if any)
 
+    /**
+     * Finds the legal sets among the cards on the table.
+     */
+    protected final SetSolver solver;
+
     /**
      * a boolean var that tells if a player can perform an action or not
      */
@@ -46,6 +51,11 @@ public class Table {
      */
     protected ConcurrentLinkedQueue<Integer> playersToCheck;
 
+    /**
+     * Receives notifications about game events (see GameListener).
+     */
+    protected volatile GameListener listener = GameListener.NONE;
+
     /**
      * for smartAI only for testing
      */
@@ -67,6 +77,7 @@ public class Table {
         tokenTable = new boolean[env.config.players][env.config.tableSize];
         playersToCheck = new ConcurrentLinkedQueue<>();
         answers = new ArrayList<>();
+        solver = new SetSolver(env.config);
     }
 
     /**
@@ -79,6 +90,10 @@ public class Table {
         this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
     }
 
+    public void setListener(GameListener listener) {
+        this.listener = listener == null ? GameListener.NONE : listener;
+    }
+
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
@@ -105,6 +120,50 @@ public class Table {
         return cards;
     }
 
+    /**
+     * Copies the cards currently on the table without locking (the copy may be stale by the time it is used).
+     *
+     * @param cards - an array of at least tableSize entries that receives the card in each slot (-1 if none).
+     * @return - the cards array.
+     */
+    public int[] snapshot(int[] cards) {
+        for (int slot = 0; slot < slotToCard.length; ++slot) {
+            Integer card = slotToCard[slot];
+            cards[slot] = card == null ? -1 : card;
+        }
+        return cards;
+    }
+
+    /**
+     * Queues a player's claim for the dealer to check and wakes the dealer up.
+     *
+     * @param player - the player that claims a set.
+     */
+    public void submitClaim(int player) {
+        playersToCheck.add(player);
+        wakeDealer();
+    }
+
+    /**
+     * Wakes the dealer up if it waits for a claim (e.g. when the game is terminated).
+     */
+    public void wakeDealer() {
+        synchronized (playersToCheck) {
+            playersToCheck.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until there is a claim to check.
+     *
+     * @param millis - the maximal time to wait.
+     */
+    public void awaitClaim(long millis) throws InterruptedException {
+        synchronized (playersToCheck) {
+            if (playersToCheck.isEmpty()) env.clock.await(playersToCheck, millis);
+        }
+    }
+
     /**
      * Places a card on the table in a grid slot.
      *
@@ -113,17 +172,42 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
-
         canPlayerModifyTable = false; // if the dealer puts cards on board, the player is not allowed to put cards on board
+        putCard(card, slot);
+    }
+
+    /**
+     * Places several cards on the table together.
+     *
+     * @param cards - the card ids to place.
+     * @param slots - the slot for each card (respectively).
+     */
+    public void placeCards(List<Integer> cards, List<Integer> slots) {
+        if (cards.isEmpty()) return;
+        canPlayerModifyTable = false;
+        for (int i = 0; i < cards.size(); i++)
+            putCard(cards.get(i), slots.get(i));
+    }
+
+    /**
+     * Replaces all the cards on the table in one step, e.g. when a new round starts.
+     *
+     * @param cards - the card for each slot (negative for an empty slot).
+     */
+    public void replaceCards(int[] cards) {
+        canPlayerModifyTable = false;
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            takeCard(slot);
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (cards[slot] >= 0) putCard(cards[slot], slot);
+    }
+
+    private void putCard(int card, int slot) {
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
 
-        // TODO implement
         env.ui.placeCard(card, slot);
+        listener.cardPlaced(card, slot);
         env.logger.info("card: " + card + " was placed on slot " + slot + " successfully");
     }
 
@@ -133,25 +217,66 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
-        // TODO implement
         canPlayerModifyTable = false; // if the dealer removes a card the players are not allowed to modify the table
+        takeCard(slot);
+    }
+
+    /**
+     * Removes the cards from several grid slots together.
+     *
+     * @param slots - the slots from which to remove the cards.
+     */
+    public void removeCards(List<Integer> slots) {
+        if (slots.isEmpty()) return;
+        canPlayerModifyTable = false;
+        for (int slot : slots)
+            takeCard(slot);
+    }
+
+    private void takeCard(int slot) {
         Integer card = slotToCard[slot];
         if(card == null){
             return;
         }
         slotToCard[slot] = null;
         cardToSlot[card] = null;
-        for (int i = 0; i < tokenTable.length; i++) {
-            if (tokenTable[i][slot]) {
-                tokenTable[i][slot] = false;
-                env.logger.info("player: " + i + " token on slot: " + slot + " was removed.");
-                env.ui.removeToken(i, slot);
-            }
+        env.ui.removeCard(slot);
+        listener.cardRemoved(card, slot);
+        for (int i = 0; i < tokenTable.length; i++)
+            if (clearToken(i, slot)) env.logger.info("player: " + i + " token on slot: " + slot + " was removed.");
+    }
+
+    /**
+     * Shows a player's token on a slot (nothing happens if it is already there). Called by the player when its tokens
+     * change, whether the table may be modified or not (the player checks that).
+     *
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot of the token.
+     */
+    void setToken(int player, int slot) {
+        synchronized (tokenTable[player]) {
+            if (tokenTable[player][slot]) return;
+            tokenTable[player][slot] = true;
         }
+        env.ui.placeToken(player, slot);
+        listener.tokenPlaced(player, slot);
+    }
+
+    /**
+     * Removes a player's token from a slot (nothing happens if there is none).
+     *
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot of the token.
+     * @return - true iff there was a token.
+     */
+    boolean clearToken(int player, int slot) {
+        synchronized (tokenTable[player]) {
+            if (!tokenTable[player][slot]) return false;
+            tokenTable[player][slot] = false;
+        }
+        env.ui.removeToken(player, slot);
+        listener.tokenRemoved(player, slot);
+        return true;
     }
 
     /**
@@ -170,6 +295,7 @@ public class Table {
                 env.logger.info("player: " + player + " put a token on slot: " + slot);
                 env.logger.info("token was saved at main token table at: " + "[Player][Slot]" + "[" + player + "]" + "[" + slot + "]");
                 env.ui.placeToken(player, slot);
+                listener.tokenPlaced(player, slot);
             }
         }
     }
@@ -187,6 +313,7 @@ public class Table {
             if (tokenTable[player][slot]) { // in case there's a token on table
                 tokenTable[player][slot] = false;
                 env.ui.removeToken(player, slot);
+                listener.tokenRemoved(player, slot);
                 env.logger.info("player: " + player + " removed a token from slot: " + slot);
                 env.logger.info("token was removed from table at: " + "[Player][Slot]" + "[" + player + "]" + "[" + slot + "]");
                 return true;
@@ -205,12 +332,8 @@ public class Table {
     public void clearAllTokens() {
         canPlayerModifyTable = false; // first we tell all the players that the board can't be modified
         for (int row = 0; row < tokenTable.length; row++) {
-            for (int col = 0; col < tokenTable[row].length; col++) {
-                if (tokenTable[row][col]) {
-                    tokenTable[row][col] = false;
-                    env.ui.removeToken(row, col);
-                }
-            }
+            for (int col = 0; col < tokenTable[row].length; col++)
+                clearToken(row, col);
             env.logger.info("all tokens were removed from board successfully");
         }
     }
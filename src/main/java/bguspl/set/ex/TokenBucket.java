@@ -0,0 +1,38 @@
+package bguspl.set.ex;
+
+/**
+ * Limits the rate of an action: the bucket holds up to burst tokens, refills at a fixed rate, and every action takes
+ * one token. The rate and the burst are passed on every call, so they may change while the game runs.
+ * Thread safe.
+ */
+public class TokenBucket {
+
+    /**
+     * The tokens left in the bucket.
+     */
+    private double tokens = -1; // filled on the first call
+
+    /**
+     * The time of the last refill (in milliseconds).
+     */
+    private long lastMillis;
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @param nowMillis     - the current time.
+     * @param ratePerSecond - the number of tokens added per second (0 or less for no limit).
+     * @param burst         - the capacity of the bucket (at least 1).
+     * @return - true iff the action may run.
+     */
+    public synchronized boolean tryAcquire(long nowMillis, double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0) return true;
+        int capacity = Math.max(1, burst);
+        if (tokens < 0) tokens = capacity;
+        else tokens = Math.min(capacity, tokens + Math.max(0, nowMillis - lastMillis) * ratePerSecond / 1000.0);
+        lastMillis = nowMillis;
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.GameThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays many simulated games (see Simulation) between the computer players on all the cores, and aggregates the
+ * results as the games finish: the win rate, points and penalties of each player, and the distribution of the game
+ * lengths. The games have no user interface and no delays, so the tournament doubles as a regression test and a
+ * throughput benchmark of the game engine. The results depend only on the seed, not on the number of threads.
+ * <p>
+ * Usage: Tournament [properties file]. The players are set up with the regular computer player keys (e.g.
+ * ComputerStrategy=smart,random and ComputerReactionSeconds=0.5,2, one value per player), and the file may also
+ * contain: TournamentGames (the number of games), TournamentSeed (the seed of the first game, the following games use
+ * the next seeds), TournamentThreads (the number of games played at once, the number of cores by default) and
+ * SimulationMaxSeconds (the virtual time after which a game is stopped).
+ */
+public class Tournament {
+
+    /**
+     * The width of a bucket of the game length histogram (in virtual milliseconds).
+     */
+    static final long LENGTH_BUCKET_MILLIS = 10_000;
+
+    /**
+     * The results aggregated so far. Thread safe.
+     */
+    public static class Standings {
+
+        private final Config config;
+        private int games;
+        private final int[] wins; // the player had the highest score alone
+        private final int[] ties; // the player shared the highest score
+        private final long[] points;
+        private final long[] penalties;
+        private long virtualMillis;
+        private long maxMillis;
+        private long events;
+        private long[] lengths = new long[32]; // a histogram of the game lengths (see LENGTH_BUCKET_MILLIS)
+
+        Standings(Config config) {
+            this.config = config;
+            wins = new int[config.players];
+            ties = new int[config.players];
+            points = new long[config.players];
+            penalties = new long[config.players];
+        }
+
+        synchronized void add(Simulation.Result result) {
+            games++;
+            int best = Integer.MIN_VALUE, leaders = 0;
+            for (int score : result.scores) {
+                if (score > best) {
+                    best = score;
+                    leaders = 0;
+                }
+                if (score == best) leaders++;
+            }
+            for (int i = 0; i < result.scores.length; i++) {
+                if (result.scores[i] == best) {
+                    if (leaders == 1) wins[i]++;
+                    else ties[i]++;
+                }
+                points[i] += result.scores[i];
+                penalties[i] += result.playerPenalties[i];
+            }
+            virtualMillis += result.virtualMillis;
+            maxMillis = Math.max(maxMillis, result.virtualMillis);
+            events += result.events;
+            int bucket = (int) (result.virtualMillis / LENGTH_BUCKET_MILLIS);
+            if (bucket >= lengths.length) {
+                long[] grown = new long[Math.max(bucket + 1, lengths.length * 2)];
+                System.arraycopy(lengths, 0, grown, 0, lengths.length);
+                lengths = grown;
+            }
+            lengths[bucket]++;
+        }
+
+        public synchronized int getGames() {
+            return games;
+        }
+
+        public synchronized int getWins(int player) {
+            return wins[player];
+        }
+
+        public synchronized int getTies(int player) {
+            return ties[player];
+        }
+
+        public synchronized long getPoints(int player) {
+            return points[player];
+        }
+
+        public synchronized long getPenalties(int player) {
+            return penalties[player];
+        }
+
+        public synchronized long getEvents() {
+            return events;
+        }
+
+        public synchronized long getVirtualMillis() {
+            return virtualMillis;
+        }
+
+        /**
+         * @param fraction - e.g. 0.5 for the median.
+         * @return - the upper end of the histogram bucket of the game length at the fraction (in virtual milliseconds).
+         */
+        public synchronized long lengthPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * games), seen = 0;
+            for (int bucket = 0; bucket < lengths.length; bucket++) {
+                seen += lengths[bucket];
+                if (seen >= Math.max(1, target)) return Math.min(maxMillis, (bucket + 1) * LENGTH_BUCKET_MILLIS);
+            }
+            return maxMillis;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            double n = Math.max(1, games);
+            long totalPoints = 0, totalPenalties = 0;
+            for (int i = 0; i < wins.length; i++) {
+                sb.append(String.format("player %d (%s): wins %.1f%%, ties %.1f%%, %.2f points and %.2f penalties per game%n",
+                        i + 1, label(i), 100.0 * wins[i] / n, 100.0 * ties[i] / n, points[i] / n, penalties[i] / n));
+                totalPoints += points[i];
+                totalPenalties += penalties[i];
+            }
+            sb.append(String.format("%d games: %.2f sets and %.2f penalties per game%n", games, totalPoints / n, totalPenalties / n));
+            sb.append(String.format("game length (virtual s): mean %.1f, p10 %s, p50 %s, p90 %s, max %s%n",
+                    virtualMillis / 1000.0 / n, seconds(lengthPercentile(0.1)), seconds(lengthPercentile(0.5)),
+                    seconds(lengthPercentile(0.9)), seconds(maxMillis)));
+            for (int bucket = 0; bucket < lengths.length; bucket++)
+                if (lengths[bucket] > 0)
+                    sb.append(String.format("  %4d-%-4d s: %d%n", bucket * LENGTH_BUCKET_MILLIS / 1000,
+                            (bucket + 1) * LENGTH_BUCKET_MILLIS / 1000, lengths[bucket]));
+            return sb.toString();
+        }
+
+        private String label(int player) {
+            String strategy = config.computerStrategy(player);
+            if (!strategy.equals("smart")) return strategy;
+            return String.format("smart, %.2f s, %.0f%% errors", config.computerReactionMillis(player) / 1000.0,
+                    100 * config.computerErrorRate(player));
+        }
+
+        private static String seconds(long millis) {
+            return String.format("%.0f", millis / 1000.0);
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final int threads;
+
+    /**
+     * @param logger  - the logger of the games (a logger without handlers is recommended).
+     * @param config  - the game configuration (all the players are computer players).
+     * @param threads - the number of games played at once.
+     */
+    public Tournament(Logger logger, Config config, int threads) {
+        this.logger = logger;
+        this.config = config;
+        this.threads = threads;
+    }
+
+    /**
+     * Plays the games.
+     *
+     * @param games     - the number of games.
+     * @param seed      - the seed of the first game (game i uses seed + i).
+     * @param maxMillis - the virtual time after which a game is stopped.
+     * @return - the aggregated results.
+     */
+    public Standings run(int games, long seed, long maxMillis) throws InterruptedException {
+        Standings standings = new Standings(config);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new GameThreads().factory("tournament", true));
+        try {
+            CompletionService<Simulation.Result> results = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < games; i++) {
+                long gameSeed = seed + i;
+                results.submit(() -> new Simulation(logger, config, gameSeed).run(maxMillis));
+            }
+            for (int i = 0; i < games; i++) {
+                try {
+                    standings.add(results.take().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("a game failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return standings;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        if (args.length > 0)
+            try (InputStream is = Files.newInputStream(Paths.get(args[0]))) {
+                properties.load(is);
+            }
+        int games = Integer.parseInt(properties.getProperty("TournamentGames", "1000"));
+        long seed = Long.parseLong(properties.getProperty("TournamentSeed", "1"));
+        int threads = Integer.parseInt(properties.getProperty("TournamentThreads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        long maxMillis = (long) (Double.parseDouble(properties.getProperty("SimulationMaxSeconds", "3600")) * 1000.0);
+
+        Logger logger = Logger.getLogger("Tournament");
+        logger.setUseParentHandlers(false);
+        Config config = Simulation.simulatedConfig(logger, properties);
+        logger.setLevel(Level.OFF); // after the configuration, which sets the level, so the games skip the logging
+
+        long start = System.nanoTime();
+        Standings standings = new Tournament(logger, config, threads).run(games, seed, maxMillis);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(standings);
+        System.out.printf("%d games on %d threads in %.2f s: %.1f games, %.0f events and %.0f virtual seconds per second%n",
+                games, threads, seconds, games / seconds, standings.getEvents() / seconds,
+                standings.getVirtualMillis() / 1000.0 / seconds);
+    }
+}
@@ -0,0 +1,234 @@
+package bguspl.set.ex;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the game events as Java Flight Recorder events, so a recording shows them next to the GC and lock events
+ * (e.g. in JDK Mission Control). The events cost almost nothing unless a recording enables them.
+ * The claim verdict and freeze events are spans: they begin when the claim is enqueued (or the player is frozen) and
+ * end on the dealer thread when the verdict is made (or the freeze is over).
+ * Loaded by name (see GameListener::flightRecorder), this class is only compiled on JDK 11 and later.
+ */
+public class FlightRecorderListener implements GameListener {
+
+    private static final String CATEGORY = "Set Game";
+
+    @Name("bguspl.set.CardPlaced")
+    @Label("Card Placed")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class CardPlaced extends Event {
+        @Label("Card")
+        int card;
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.CardRemoved")
+    @Label("Card Removed")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class CardRemoved extends Event {
+        @Label("Card")
+        int card;
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.TokenPlaced")
+    @Label("Token Placed")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class TokenPlaced extends Event {
+        @Label("Player")
+        int player;
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.TokenRemoved")
+    @Label("Token Removed")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class TokenRemoved extends Event {
+        @Label("Player")
+        int player;
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.ClaimEnqueued")
+    @Label("Claim Enqueued")
+    @Category({CATEGORY, "Claims"})
+    @StackTrace(false)
+    static class ClaimEnqueued extends Event {
+        @Label("Player")
+        int player;
+        @Label("Cards")
+        String cards;
+    }
+
+    @Name("bguspl.set.ClaimVerdict")
+    @Label("Claim Verdict")
+    @Description("From the claim until the dealer decided it")
+    @Category({CATEGORY, "Claims"})
+    @StackTrace(false)
+    static class ClaimVerdict extends Event {
+        @Label("Player")
+        int player;
+        @Label("Outcome")
+        @Description("legal, illegal or rejected (the cards were taken by an earlier claim)")
+        String outcome;
+    }
+
+    @Name("bguspl.set.PlayerFrozen")
+    @Label("Player Frozen")
+    @Category({CATEGORY, "Players"})
+    @StackTrace(false)
+    static class PlayerFrozen extends Event {
+        @Label("Player")
+        int player;
+        @Label("Penalty")
+        boolean penalty;
+        @Label("Freeze Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long freezeMillis;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Description("The dealer replaced the cards on the table at the turn timeout")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class Reshuffle extends Event {
+        @Label("Cards")
+        int cards;
+    }
+
+    /**
+     * The open span events, by player id (null if none).
+     */
+    private final AtomicReferenceArray<ClaimVerdict> claims;
+    private final AtomicReferenceArray<PlayerFrozen> freezes;
+
+    /**
+     * The open reshuffle event (used by the dealer thread only).
+     */
+    private Reshuffle reshuffle;
+
+    public FlightRecorderListener(int players) {
+        claims = new AtomicReferenceArray<>(players);
+        freezes = new AtomicReferenceArray<>(players);
+    }
+
+    @Override
+    public void cardPlaced(int card, int slot) {
+        CardPlaced event = new CardPlaced();
+        if (!event.isEnabled()) return;
+        event.card = card;
+        event.slot = slot;
+        event.commit();
+    }
+
+    @Override
+    public void cardRemoved(int card, int slot) {
+        CardRemoved event = new CardRemoved();
+        if (!event.isEnabled()) return;
+        event.card = card;
+        event.slot = slot;
+        event.commit();
+    }
+
+    @Override
+    public void tokenPlaced(int player, int slot) {
+        TokenPlaced event = new TokenPlaced();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.slot = slot;
+        event.commit();
+    }
+
+    @Override
+    public void tokenRemoved(int player, int slot) {
+        TokenRemoved event = new TokenRemoved();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.slot = slot;
+        event.commit();
+    }
+
+    @Override
+    public void claimEnqueued(int player, int[] cards) {
+        ClaimEnqueued event = new ClaimEnqueued();
+        if (event.isEnabled()) {
+            event.player = player;
+            event.cards = Arrays.toString(cards);
+            event.commit();
+        }
+        ClaimVerdict verdict = new ClaimVerdict();
+        if (!verdict.isEnabled()) return;
+        verdict.player = player;
+        verdict.begin();
+        claims.set(player, verdict);
+    }
+
+    @Override
+    public void claimChecked(int player, boolean legal) {
+        endClaim(player, legal ? "legal" : "illegal");
+    }
+
+    @Override
+    public void claimRejected(int player) {
+        endClaim(player, "rejected");
+    }
+
+    private void endClaim(int player, String outcome) {
+        ClaimVerdict verdict = claims.getAndSet(player, null);
+        if (verdict == null) return;
+        verdict.outcome = outcome;
+        verdict.commit();
+    }
+
+    @Override
+    public void playerFrozen(int player, long millis, boolean penalty) {
+        PlayerFrozen event = new PlayerFrozen();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.penalty = penalty;
+        event.freezeMillis = millis;
+        event.begin();
+        freezes.set(player, event);
+    }
+
+    @Override
+    public void playerUnfrozen(int player) {
+        PlayerFrozen event = freezes.getAndSet(player, null);
+        if (event != null) event.commit();
+    }
+
+    @Override
+    public void reshuffleStarted() {
+        Reshuffle event = new Reshuffle();
+        if (!event.isEnabled()) return;
+        event.begin();
+        reshuffle = event;
+    }
+
+    @Override
+    public void reshuffleFinished(int cards) {
+        Reshuffle event = reshuffle;
+        reshuffle = null;
+        if (event == null) return;
+        event.cards = cards;
+        event.commit();
+    }
+}
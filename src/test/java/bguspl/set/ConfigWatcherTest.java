@@ -0,0 +1,88 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    Path file;
+    Env env;
+    ConfigWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("config.properties");
+        write("LogLevel=OFF\nRows=3\nTableDelaySeconds=0.1\n");
+        Logger logger = new Logger("", null) {
+        };
+        env = new Env(logger, new Config(logger, file.toString()), null, null);
+        watcher = new ConfigWatcher(env, file);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        assertTrue(watcher.stop(1000));
+    }
+
+    private void write(String properties) throws IOException {
+        Files.write(file, properties.getBytes());
+    }
+
+    @Test
+    void tunableChangeIsPublished() throws IOException, InterruptedException {
+        watcher.start();
+        write("LogLevel=OFF\nRows=3\nTableDelaySeconds=0.5\n");
+        for (int i = 0; i < 100 && env.config.tableDelayMillis != 500; i++)
+            Thread.sleep(50);
+        assertEquals(500, env.config.tableDelayMillis);
+    }
+
+    @Test
+    void topologyChangeIsRejected() throws IOException {
+        Config current = env.config;
+        write("LogLevel=OFF\nRows=4\nTableDelaySeconds=0.5\n");
+        watcher.reload();
+        assertSame(current, env.config);
+        assertEquals(3, env.config.rows);
+        assertEquals(100, env.config.tableDelayMillis);
+    }
+
+    @Test
+    void malformedOrTruncatedFileIsRejected() throws IOException {
+        Config current = env.config;
+        write("LogLevel=OFF\nRows=3\nTableDelaySeconds=soon\n");
+        watcher.reload();
+        write("LogLevel=OFF\nRows=3\n"); // no TableDelaySeconds: would reset it to its default
+        watcher.reload();
+        write("");
+        watcher.reload();
+        Files.delete(file);
+        watcher.reload();
+        assertSame(current, env.config);
+    }
+
+    @Test
+    void watcherSurvivesAMalformedFile() throws IOException, InterruptedException {
+        watcher.start();
+        write("LogLevel=OFF\nRows=3\nTableDelaySeconds=soon\n");
+        Thread.sleep(2 * ConfigWatcher.SETTLE_MILLIS);
+        write("LogLevel=OFF\nRows=3\nTableDelaySeconds=0.5\n");
+        for (int i = 0; i < 100 && env.config.tableDelayMillis != 500; i++)
+            Thread.sleep(50);
+        assertEquals(500, env.config.tableDelayMillis);
+    }
+}
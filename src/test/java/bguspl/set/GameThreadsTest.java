@@ -0,0 +1,94 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameThreadsTest {
+
+    @Test
+    void newThread_NamesAndAccountsByRole() throws InterruptedException {
+        GameThreads threads = new GameThreads();
+        Thread[] players = new Thread[2];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = threads.newThread("player", i, () -> {
+                long sum = 0;
+                for (int j = 0; j < 1_000_000; j++) sum += Integer.toString(j).length();
+                assertTrue(sum > 0);
+            });
+            players[i].start();
+        }
+        Thread dealer = threads.newThread("dealer", () -> {
+        });
+        dealer.start();
+        for (Thread player : players) player.join();
+        dealer.join();
+
+        assertEquals("player-1", players[1].getName());
+        assertEquals("dealer", dealer.getName());
+        String[] report = threads.report();
+        assertEquals(2, report.length);
+        String playerLine = report[0].startsWith("player") ? report[0] : report[1];
+        assertTrue(playerLine.startsWith("player: 2 threads, cpu "), playerLine);
+        assertFalse(playerLine.contains("allocated 0 KB"), playerLine); // the ended threads were sampled
+    }
+
+    @Test
+    void factory_TracksTheExecutorThreads() throws InterruptedException {
+        GameThreads threads = new GameThreads();
+        ExecutorService executor = Executors.newSingleThreadExecutor(threads.factory("round-planner", true));
+        executor.submit(() -> {
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        String[] report = threads.report();
+        assertEquals(1, report.length);
+        assertTrue(report[0].startsWith("round-planner: 1 threads"), report[0]);
+    }
+
+    @Test
+    void newThread_AccountsForAFailedTask() throws InterruptedException {
+        GameThreads threads = new GameThreads();
+        Thread failing = threads.newThread("computer", 0, () -> {
+            throw new IllegalStateException("the strategy failed");
+        });
+        failing.setUncaughtExceptionHandler((thread, e) -> {
+        });
+        failing.start();
+        failing.join();
+
+        String[] report = threads.report();
+        assertEquals(1, report.length);
+        assertTrue(report[0].startsWith("computer: 1 threads"), report[0]);
+    }
+
+    @Test
+    void report_CountsTheTimesAThreadWasBlocked() throws InterruptedException {
+        GameThreads threads = new GameThreads();
+        Object lock = new Object();
+        Thread blocked;
+        synchronized (lock) {
+            blocked = threads.newThread("dealer", () -> {
+                synchronized (lock) {
+                    assertTrue(Thread.holdsLock(lock));
+                }
+            });
+            blocked.start();
+            while (blocked.getState() != Thread.State.BLOCKED)
+                Thread.yield();
+            String[] live = threads.report(); // sampled while the thread is still running
+            assertTrue(live[0].contains("blocked 1 times"), live[0]);
+        }
+        blocked.join();
+
+        String[] report = threads.report();
+        assertTrue(report[0].contains("blocked 1 times"), report[0]);
+    }
+}
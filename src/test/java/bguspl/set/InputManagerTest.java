@@ -0,0 +1,62 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JPanel;
+import java.awt.Component;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyEvent;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class InputManagerTest {
+
+    private final Component window = new JPanel();
+    private Player player;
+    private InputManager input;
+    private int key;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        Logger logger = new Logger("", null) {
+        };
+        Config config = new Config(logger, properties);
+        player = mock(Player.class);
+        input = new InputManager(logger, config, new Player[]{player, null});
+        key = config.playerKeys(0)[2];
+    }
+
+    private KeyEvent key(int id, long when) {
+        return new KeyEvent(window, id, when, 0, key, KeyEvent.CHAR_UNDEFINED);
+    }
+
+    @Test
+    void keyPressed_HeldKeyIsNotPressedAgain() {
+        input.keyPressed(key(KeyEvent.KEY_PRESSED, 1000));
+        input.keyPressed(key(KeyEvent.KEY_PRESSED, 1050)); // auto-repeat
+        input.keyReleased(key(KeyEvent.KEY_RELEASED, 1100));
+        input.keyPressed(key(KeyEvent.KEY_PRESSED, 2000));
+
+        verify(player, times(2)).submitKeyPress(eq(2), anyLong());
+        verify(player).keyRepeated();
+    }
+
+    @Test
+    void focusLost_ReleasesTheHeldKeys() {
+        input.keyPressed(key(KeyEvent.KEY_PRESSED, 1000));
+        input.focusLost(new FocusEvent(window, FocusEvent.FOCUS_LOST)); // the release goes to another window
+        input.keyPressed(key(KeyEvent.KEY_PRESSED, 5000));
+
+        verify(player, times(2)).submitKeyPress(eq(2), anyLong());
+    }
+}
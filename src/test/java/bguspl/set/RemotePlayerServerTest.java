@@ -0,0 +1,129 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemotePlayerServerTest {
+
+    RemotePlayerServer server;
+    Table table;
+    Player[] players;
+    Thread[] playerThreads;
+    List<RemotePlayerClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("LogLevel", "OFF");
+        Logger logger = new Logger("", null) {
+        };
+        Config config = new Config(logger, properties);
+        players = new Player[config.players];
+        server = new RemotePlayerServer(logger, config, players, null, 0);
+        Env env = new Env(logger, config, server, new UtilImpl(config));
+        table = new Table(env);
+        playerThreads = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(env, null, table, i, true);
+            playerThreads[i] = new Thread(players[i]);
+            playerThreads[i].start();
+        }
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException, InterruptedException {
+        for (RemotePlayerClient client : clients)
+            client.close();
+        assertTrue(server.stop(1000));
+        for (int i = 0; i < players.length; i++) {
+            players[i].terminate();
+            playerThreads[i].join(1000);
+        }
+    }
+
+    private RemotePlayerClient connect() throws IOException {
+        RemotePlayerClient client = new RemotePlayerClient("localhost", server.getPort());
+        clients.add(client);
+        return client;
+    }
+
+    @Test
+    void clientsTakeOverHumanPlayersInOrder() throws IOException {
+        for (int i = 0; i < players.length; i++)
+            assertEquals(i, connect().player);
+        assertThrows(IOException.class, this::connect);
+    }
+
+    @Test
+    void tableChangesAreBroadcast() throws IOException {
+        RemotePlayerClient first = connect();
+        RemotePlayerClient second = connect();
+        table.placeCard(5, 1);
+        assertTrue(first.receiveUntil(RemotePlayerServer.PLACE_CARD, 1000));
+        assertTrue(second.receiveUntil(RemotePlayerServer.PLACE_CARD, 1000));
+        assertEquals(5, first.card(1));
+        assertEquals(5, second.card(1));
+
+        table.removeCard(1);
+        assertTrue(first.receiveUntil(RemotePlayerServer.REMOVE_CARD, 1000));
+        assertEquals(-1, first.card(1));
+    }
+
+    @Test
+    void lateClientReceivesCurrentState() throws IOException {
+        table.placeCard(7, 2);
+        RemotePlayerClient client = connect();
+        assertTrue(client.receiveUntil(RemotePlayerServer.PLACE_CARD, 1000));
+        assertEquals(7, client.card(2));
+    }
+
+    @Test
+    void pressesAreDispatchedToPlayers() throws IOException {
+        RemotePlayerClient first = connect();
+        RemotePlayerClient second = connect();
+        second.press(0);
+        assertTrue(first.receiveUntil(RemotePlayerServer.PLACE_TOKEN, 1000));
+        assertTrue(first.hasToken(second.player, 0));
+        assertEquals(1, players[second.player].getTokensPlaced());
+    }
+
+    @Test
+    void stopWhileBroadcastingDoesNotFailTheIoThread() throws IOException, InterruptedException {
+        for (int i = 0; i < players.length; i++)
+            connect();
+        AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.set(e));
+        Thread broadcaster = new Thread(() -> {
+            for (int i = 0; !Thread.currentThread().isInterrupted(); i++)
+                server.setElapsed(i);
+        });
+        try {
+            broadcaster.start();
+            Thread.sleep(50);
+            assertTrue(server.stop(1000));
+        } finally {
+            broadcaster.interrupt();
+            broadcaster.join();
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        assertNull(uncaught.get());
+    }
+}
@@ -0,0 +1,106 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShutdownCoordinatorTest {
+
+    private final Logger logger = new Logger("", null) {
+    };
+
+    @Test
+    void shutdown_RunsThePhasesInReverseOrderOnce() {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(logger);
+        List<String> ran = new ArrayList<>();
+        for (String name : new String[]{"first", "second", "third"})
+            coordinator.register(name, timeout -> ran.add(name));
+
+        assertTrue(coordinator.shutdown(100));
+        assertTrue(coordinator.shutdown(100));
+
+        assertEquals(Arrays.asList("third", "second", "first"), ran);
+        assertEquals(3, coordinator.getPhases().length);
+        assertTrue(coordinator.getPhases()[0].startsWith("third: "));
+    }
+
+    @Test
+    void shutdown_ContinuesAfterAStuckPhase() {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(logger);
+        Thread stuck = new Thread(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        stuck.start();
+        List<String> ran = new ArrayList<>();
+        coordinator.register("after", timeout -> ran.add("after"));
+        coordinator.register("stuck", timeout -> {
+            stuck.join(timeout);
+            return !stuck.isAlive();
+        });
+        coordinator.register("failing", timeout -> {
+            throw new IllegalStateException("failed");
+        });
+
+        long start = System.nanoTime();
+        assertFalse(coordinator.shutdown(50));
+        assertTrue((System.nanoTime() - start) / 1_000_000L < 5000);
+        assertEquals(Arrays.asList("after"), ran);
+        assertTrue(coordinator.getPhases()[1].endsWith("(not completed)"));
+        stuck.interrupt();
+    }
+
+    @Test
+    void shutdown_AbandonsAPhaseThatIgnoresItsTimeout() {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(logger);
+        Thread hung = new Thread(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        hung.start();
+        List<String> ran = new ArrayList<>();
+        coordinator.register("after", timeout -> ran.add("after"));
+        coordinator.register("hung", timeout -> {
+            hung.join(); // no timeout
+            return true;
+        });
+
+        long start = System.nanoTime();
+        assertFalse(coordinator.shutdown(200));
+        assertTrue((System.nanoTime() - start) / 1_000_000L < 2000);
+        assertEquals(Arrays.asList("after"), ran);
+        assertTrue(coordinator.getPhases()[0].startsWith("hung: "));
+        assertTrue(coordinator.getPhases()[0].endsWith("(not completed)"));
+        hung.interrupt();
+    }
+
+    @Test
+    void shutdown_GivesEachPhaseTheTimeLeftOfTheBudget() {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(logger);
+        List<Long> timeouts = new ArrayList<>();
+        coordinator.register("last", timeout -> timeouts.add(timeout));
+        coordinator.register("second", timeout -> timeouts.add(timeout));
+        coordinator.register("slow", timeout -> {
+            timeouts.add(timeout);
+            Thread.sleep(300);
+            return true;
+        });
+
+        assertTrue(coordinator.shutdown(400));
+
+        assertEquals(400, timeouts.get(0), 20);
+        assertTrue(timeouts.get(1) <= 100 + 20, "second phase timeout " + timeouts.get(1));
+        assertTrue(timeouts.get(2) >= ShutdownCoordinator.MIN_PHASE_MILLIS);
+    }
+}
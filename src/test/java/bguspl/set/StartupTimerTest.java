@@ -0,0 +1,79 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StartupTimerTest {
+
+    @Test
+    void backgroundPhasesAreMarkedAndNotCountedAsMainThreadTime() throws InterruptedException {
+        StartupTimer startup = new StartupTimer();
+        long background = startup.phaseStarted();
+        long phase = startup.phaseStarted();
+        Thread.sleep(20);
+        startup.phaseEnded("config", phase);
+        Thread.sleep(200);
+        startup.backgroundPhaseEnded("user interface", background);
+
+        String[] phases = startup.getPhases();
+        assertEquals(2, phases.length);
+        assertTrue(phases[0].startsWith("config: "));
+        assertTrue(phases[1].startsWith("user interface: ") && phases[1].endsWith(" ms (background)"));
+        assertTrue(startup.getMainThreadMillis() >= 20 && startup.getMainThreadMillis() < 200);
+    }
+
+    @Test
+    void backgroundPhasesFromSeveralThreadsAreAllRecorded() throws InterruptedException {
+        StartupTimer startup = new StartupTimer();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            String name = "phase " + i;
+            threads[i] = new Thread(() -> startup.backgroundPhaseEnded(name, startup.phaseStarted()));
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(threads.length, startup.getPhases().length);
+        assertEquals(0, startup.getMainThreadMillis());
+    }
+
+    @Test
+    void logReportsTheSequentialTimeAndWhetherTheGameBecamePlayable() {
+        List<String> messages = new ArrayList<>();
+        Logger logger = new Logger("", null) {
+        };
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        StartupTimer startup = new StartupTimer();
+        startup.phaseEnded("config", startup.phaseStarted());
+        startup.log(logger);
+        assertEquals(-1, startup.getTimeToPlayableMillis());
+        assertTrue(messages.contains("time to playable: -1 ms"), messages.toString());
+        assertTrue(messages.get(1).startsWith("startup main thread phases (sequential): "), messages.toString());
+
+        startup.playable();
+        assertTrue(startup.getTimeToPlayableMillis() >= 0);
+    }
+}
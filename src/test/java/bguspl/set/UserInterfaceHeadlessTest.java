@@ -0,0 +1,67 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserInterfaceHeadlessTest {
+
+    @Test
+    void calls_AreCountedByMethod() {
+        UserInterfaceHeadless ui = new UserInterfaceHeadless();
+        ui.placeCard(3, 0);
+        ui.placeCard(4, 1);
+        ui.removeTokens(1);
+        ui.setFreeze(0, 1000);
+        ui.announceWinner(new int[]{0});
+
+        assertEquals(2, ui.getCalls(UserInterfaceHeadless.Method.PLACE_CARD));
+        assertEquals(1, ui.getCalls(UserInterfaceHeadless.Method.REMOVE_SLOT_TOKENS));
+        assertEquals(0, ui.getCalls(UserInterfaceHeadless.Method.REMOVE_TOKENS));
+        assertEquals(5, ui.getCalls());
+        assertArrayEquals(new String[]{"place_card: 2 calls", "remove_slot_tokens: 1 calls", "set_freeze: 1 calls",
+                "announce_winner: 1 calls"}, ui.report());
+    }
+
+    @Test
+    void calls_FromSeveralThreadsAreNotLost() throws InterruptedException {
+        UserInterfaceHeadless ui = new UserInterfaceHeadless();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int call = 0; call < 10_000; call++)
+                    ui.placeToken(player, call % 12);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(40_000, ui.getCalls(UserInterfaceHeadless.Method.PLACE_TOKEN));
+    }
+
+    @Test
+    void calls_EveryMethodOfTheInterfaceIsCounted() throws IllegalAccessException, InvocationTargetException {
+        UserInterfaceHeadless ui = new UserInterfaceHeadless();
+        assertEquals(0, ui.report().length);
+        int updates = 0;
+        for (Method method : UserInterface.class.getMethods()) {
+            if (method.isDefault()) continue; // a query (e.g. cardsShown), not an update
+            updates++;
+            Class<?>[] types = method.getParameterTypes();
+            Object[] args = new Object[types.length];
+            for (int i = 0; i < types.length; i++)
+                args[i] = types[i] == int.class ? (Object) 0 : types[i] == long.class ? (Object) 0L
+                        : types[i] == boolean.class ? (Object) false : new int[0];
+            method.invoke(ui, args);
+        }
+
+        assertEquals(updates, ui.getCalls());
+        assertEquals(UserInterfaceHeadless.Method.values().length, ui.report().length); // each one once
+    }
+}
@@ -0,0 +1,160 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserInterfacePacerTest {
+
+    /**
+     * Records the card and token updates and the time each card update was shown.
+     */
+    static class RecordingUserInterface implements UserInterface {
+        final List<String> updates = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> cardTimes = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean disposed;
+
+        public void placeCard(int card, int slot) {
+            cardTimes.add(System.currentTimeMillis());
+            updates.add("place " + card + " " + slot);
+        }
+
+        public void removeCard(int slot) {
+            cardTimes.add(System.currentTimeMillis());
+            updates.add("remove " + slot);
+        }
+
+        public void placeToken(int player, int slot) {
+            updates.add("token " + player + " " + slot);
+        }
+
+        public void removeTokens() {
+        }
+
+        public void removeTokens(int slot) {
+        }
+
+        public void removeToken(int player, int slot) {
+        }
+
+        public void setCountdown(long millies, boolean warn) {
+        }
+
+        public void setElapsed(long millies) {
+            updates.add("elapsed " + millies);
+        }
+
+        public void setFreeze(int player, long millies) {
+        }
+
+        public void setScore(int player, int score) {
+        }
+
+        public void announceWinner(int[] players) {
+        }
+
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+    private final Logger logger = new Logger("", null) {
+    };
+
+    @Test
+    void cardUpdates_ArePacedAndKeepTheirOrder() throws InterruptedException {
+        RecordingUserInterface ui = new RecordingUserInterface();
+        UserInterfacePacer pacer = new UserInterfacePacer(logger, ui, () -> 50);
+        pacer.start();
+        long start = System.currentTimeMillis();
+        pacer.placeCard(7, 0);
+        pacer.placeCard(8, 1);
+        pacer.placeToken(0, 1);
+        pacer.removeCard(0);
+        long returned = System.currentTimeMillis() - start;
+
+        for (int i = 0; i < 100 && ui.cardTimes.size() < 3; i++)
+            Thread.sleep(10);
+        pacer.dispose();
+
+        assertTrue(returned < 50); // the caller is not delayed
+        assertEquals(Arrays.asList("place 7 0", "place 8 1", "token 0 1", "remove 0"), ui.updates);
+        for (int i = 1; i < ui.cardTimes.size(); i++)
+            assertTrue(ui.cardTimes.get(i) - ui.cardTimes.get(i - 1) >= 45);
+    }
+
+    @Test
+    void timerUpdates_AreNotDelayed() {
+        RecordingUserInterface ui = new RecordingUserInterface();
+        UserInterfacePacer pacer = new UserInterfacePacer(logger, ui, () -> 1000);
+        pacer.placeCard(7, 0); // not shown, the pacer is not started
+        pacer.setElapsed(5);
+        assertEquals(Collections.singletonList("elapsed 5"), ui.updates);
+        assertEquals(1, pacer.getBacklog());
+    }
+
+    @Test
+    void dispose_DropsTheUpdatesNotShownYet() throws InterruptedException {
+        RecordingUserInterface ui = new RecordingUserInterface();
+        AtomicLong delay = new AtomicLong(10_000);
+        UserInterfacePacer pacer = new UserInterfacePacer(logger, ui, delay::get);
+        pacer.start();
+        pacer.placeCard(7, 0); // shown at once, the next card waits for the delay
+        pacer.placeCard(8, 1);
+        for (int i = 0; i < 100 && ui.updates.isEmpty(); i++)
+            Thread.sleep(10);
+        pacer.dispose();
+        delay.set(0);
+        pacer.placeCard(9, 2);
+        Thread.sleep(100);
+
+        assertTrue(ui.disposed);
+        assertEquals(Collections.singletonList("place 7 0"), ui.updates);
+    }
+
+    @Test
+    void cardsShown_IsFalseUntilThePacerCaughtUp() throws InterruptedException {
+        RecordingUserInterface ui = new RecordingUserInterface();
+        UserInterfacePacer pacer = new UserInterfacePacer(logger, ui, () -> 50);
+        CountDownLatch caughtUp = new CountDownLatch(1);
+        pacer.onCaughtUp(caughtUp::countDown);
+        assertTrue(pacer.cardsShown());
+        pacer.placeCard(7, 0);
+        pacer.placeCard(8, 1);
+        pacer.removeCard(0);
+        assertFalse(pacer.cardsShown());
+
+        pacer.start();
+        assertTrue(caughtUp.await(5, TimeUnit.SECONDS));
+        pacer.dispose();
+
+        assertEquals(3, ui.cardTimes.size()); // the last card is showing when the pacer reports it caught up
+        assertTrue(pacer.cardsShown());
+    }
+
+    @Test
+    void cardUpdates_AreNotPacedWithoutADelay() throws InterruptedException {
+        RecordingUserInterface ui = new RecordingUserInterface();
+        UserInterfacePacer pacer = new UserInterfacePacer(logger, ui, () -> 0);
+        pacer.start();
+        long start = System.currentTimeMillis();
+        for (int slot = 0; slot < 12; slot++)
+            pacer.placeCard(slot, slot);
+        for (int i = 0; i < 500 && ui.cardTimes.size() < 12; i++)
+            Thread.sleep(1);
+        pacer.dispose();
+
+        assertEquals(12, ui.cardTimes.size());
+        assertEquals(0, pacer.getBacklog());
+        assertTrue(ui.cardTimes.get(11) - start < 200);
+    }
+}
@@ -0,0 +1,144 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualClockTest {
+
+    @Test
+    void sleep_AdvancesWithoutWaiting() throws InterruptedException {
+        VirtualClock clock = new VirtualClock(1000);
+        long start = System.nanoTime();
+        clock.sleep(60_000);
+        Object monitor = new Object();
+        synchronized (monitor) {
+            clock.await(monitor, 500);
+        }
+        assertEquals(61_500, clock.currentTimeMillis());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    void sleep_ThrowsWhenInterrupted() {
+        VirtualClock clock = new VirtualClock();
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> clock.sleep(10));
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(0, clock.currentTimeMillis());
+    }
+
+    @RepeatedTest(20)
+    void sleep_ConcurrentThreadsWakeAtTheirOwnDeadlines() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        long[] wakes = new long[3];
+        Thread slow = new Thread(() -> {
+            try {
+                clock.sleep(100);
+                wakes[0] = clock.currentTimeMillis();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Thread fast = new Thread(() -> {
+            try {
+                clock.sleep(30);
+                wakes[1] = clock.currentTimeMillis();
+                clock.sleep(50);
+                wakes[2] = clock.currentTimeMillis();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        clock.register(slow);
+        clock.register(fast);
+        slow.start();
+        fast.start();
+        slow.join(5000);
+        fast.join(5000);
+
+        assertArrayEquals(new long[]{100, 30, 80}, wakes);
+        assertEquals(100, clock.currentTimeMillis());
+    }
+
+    @Test
+    void sleep_TimeWaitsForARegisteredThreadThatDidNotStart() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        long[] wakes = new long[2];
+        Thread early = new Thread(() -> {
+            try {
+                clock.sleep(100);
+                wakes[0] = clock.currentTimeMillis();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Thread late = new Thread(() -> {
+            try {
+                clock.sleep(50);
+                wakes[1] = clock.currentTimeMillis();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        clock.register(early);
+        clock.register(late);
+        early.start();
+
+        assertFalse(clock.awaitTime(1, 200)); // the late thread is not sleeping yet
+        late.start();
+        early.join(5000);
+        late.join(5000);
+
+        assertArrayEquals(new long[]{100, 50}, wakes);
+    }
+
+    @Test
+    void await_WakesAtTheDeadlineWhileAnotherThreadSleeps() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        Object monitor = new Object();
+        long[] wake = new long[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                synchronized (monitor) {
+                    while (clock.currentTimeMillis() < 70)
+                        clock.await(monitor, 70 - clock.currentTimeMillis());
+                    wake[0] = clock.currentTimeMillis();
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Thread sleeper = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5; i++)
+                    clock.sleep(30);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        clock.register(waiter);
+        clock.register(sleeper);
+        waiter.start();
+        sleeper.start();
+        waiter.join(5000);
+        sleeper.join(5000);
+
+        assertEquals(70, wake[0]); // not 90, the next deadline of the sleeper
+        assertEquals(150, clock.currentTimeMillis());
+    }
+
+    @Test
+    void awaitTime_ReturnsWhenTheSleepersMovedTheTime() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        Thread sleeper = new Thread(() -> {
+            try {
+                for (int i = 0; i < 10; i++)
+                    clock.sleep(1000);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        clock.register(sleeper);
+        sleeper.start();
+
+        assertTrue(clock.awaitTime(5000, 5000));
+        assertFalse(clock.awaitTime(60_000, 100));
+        sleeper.join(5000);
+        assertEquals(10_000, clock.currentTimeMillis());
+    }
+}
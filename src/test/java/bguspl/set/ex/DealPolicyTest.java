@@ -0,0 +1,101 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealPolicyTest {
+
+    SetSolver solver;
+    DealPolicy policy;
+    Random random;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("DealTargetSets", "1");
+        properties.put("DealMaxAttempts", "1");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        solver = new SetSolver(config);
+        policy = new DealPolicy(env, solver);
+        random = new Random(1);
+    }
+
+    @Test
+    void draw_RefillCompletesASet() {
+        // the deck only has cards that do not complete a set with 0 and 1, except for card 2
+        int[] table = {0, 1, -1};
+        IndexPool deck = new IndexPool(81, false);
+        for (int card = 2; card < 81; ++card)
+            if (solver.countSets(new int[]{0, 1, card}, 1) == 0 || card == 2) deck.add(card);
+
+        for (int round = 0; round < 20; ++round) {
+            IndexPool copy = new IndexPool(81, false);
+            for (int i = 0; i < deck.size(); ++i) copy.add(deck.get(i));
+            int[] drawn = policy.draw(table, 1, copy, random);
+            assertArrayEquals(new int[]{2}, drawn);
+            assertFalse(copy.contains(2));
+            assertEquals(deck.size() - 1, copy.size());
+        }
+    }
+
+    @Test
+    void draw_FullDealHasASetAndNoDuplicates() {
+        for (int round = 0; round < 50; ++round) {
+            IndexPool deck = new IndexPool(81, true);
+            int[] table = new int[12];
+            Arrays.fill(table, -1);
+            int[] drawn = policy.draw(table, 12, deck, random);
+            assertEquals(12, drawn.length);
+            assertEquals(12, Arrays.stream(drawn).distinct().count());
+            assertEquals(69, deck.size());
+            for (int card : drawn) assertFalse(deck.contains(card));
+            assertEquals(1, solver.countSets(drawn, 1));
+        }
+    }
+
+    @Test
+    void draw_ShortDeckDealsWhatIsLeft() {
+        IndexPool deck = new IndexPool(81, false);
+        deck.add(5);
+        deck.add(9);
+        int[] table = new int[12];
+        Arrays.fill(table, -1);
+        int[] drawn = policy.draw(table, 3, deck, random);
+
+        Arrays.sort(drawn);
+        assertArrayEquals(new int[]{5, 9}, drawn);
+        assertEquals(0, deck.size());
+        assertEquals(0, policy.draw(table, 3, deck, random).length);
+    }
+
+    @Test
+    void draw_WithoutAnySetLeftStillFillsTheSlots() {
+        // no card of the deck completes a set with the table (or with another card of the deck)
+        int[] table = {0, 1, -1, -1};
+        IndexPool deck = new IndexPool(81, false);
+        for (int card = 3; card < 81 && deck.size() < 4; ++card) {
+            int[] cards = new int[table.length + deck.size() + 1];
+            System.arraycopy(table, 0, cards, 0, table.length);
+            deck.copyTo(cards, table.length);
+            cards[cards.length - 1] = card;
+            if (solver.countSets(cards, 1) == 0) deck.add(card);
+        }
+        assertEquals(4, deck.size());
+
+        int[] drawn = policy.draw(table, 2, deck, random);
+        assertEquals(2, drawn.length);
+        assertEquals(2, Arrays.stream(drawn).distinct().count());
+        for (int card : drawn) assertFalse(deck.contains(card));
+        assertEquals(2, deck.size());
+    }
+}
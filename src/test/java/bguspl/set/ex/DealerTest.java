@@ -4,10 +4,17 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -34,6 +41,7 @@ class DealerTest {
     Player player;
 
 
+    private Env env;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
 
@@ -56,7 +64,7 @@ class DealerTest {
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
-        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
 
         Player player1 = new Player(env, dealer, table, 0, false);
@@ -93,9 +101,167 @@ class DealerTest {
         assertTrue(dealer.isTerminate());
     }
 
+    @Test
+    void terminate_StopsThePlayerThreads() throws InterruptedException {
+        Thread thread = new Thread(dealer);
+        thread.start();
+        assertTrue(dealer.awaitFirstDeal(5000)); // the player threads were started
+        long start = System.nanoTime();
+        dealer.terminate();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertTrue((System.nanoTime() - start) / 1_000_000L < 5000);
+        for (Thread other : Thread.getAllStackTraces().keySet()) {
+            assertFalse(other.getName().startsWith("player-"), other.getName() + " is alive");
+            assertFalse(other.getName().startsWith("computer-"), other.getName() + " is alive");
+        }
+    }
+
     @Test
     void removeAllCardsFromTable() {
        dealer.restTimeTrueTest();
        assertTrue(dealer.isNewRound());
     }
+
+    @Test
+    void removeCardsFromTable_OverlappingClaims() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+        players = new Player[]{new Player(env, dealer, table, 0, true), new Player(env, dealer, table, 1, true)};
+        dealer = new Dealer(env, table, players);
+
+        // both players claim the same legal set (cards 0, 1, 2), player 0 first
+        for (Player player : players)
+            for (int slot = 0; slot < 3; ++slot)
+                player.keyPressed(slot);
+        dealer.removeCardsFromTable();
+
+        assertEquals(1, players[0].score());
+        assertEquals(0, players[1].score());
+        assertEquals(Player.State.ACTIVE, players[1].getState()); // rejected without a penalty
+        assertEquals(0, players[1].selectedSlots().length);
+        assertEquals(1, table.countCards());
+        assertInvariants();
+    }
+
+    @Test
+    void placeCardsOnTable_FillsOnlyEmptySlots() {
+        slotToCard[1] = null;
+        cardToSlot[1] = null;
+        slotToCard[3] = null;
+        cardToSlot[3] = null;
+        dealer = new Dealer(env, table, players);
+        int deckSize = dealer.getDeckSize();
+
+        dealer.placeCardsOnTable();
+
+        assertEquals(0, slotToCard[0]);
+        assertEquals(2, slotToCard[2]);
+        assertEquals(slotToCard.length, table.countCards());
+        assertEquals(deckSize - 2, dealer.getDeckSize());
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            assertEquals(slot, cardToSlot[slotToCard[slot]]);
+        assertInvariants();
+    }
+
+    @Test
+    void placeCardsOnTable_OpensTheTableOnceTheCardsAreShown() {
+        boolean[] shown = {false};
+        env = new Env(env.logger, env.config, new TableTest.MockUserInterface() {
+            @Override
+            public boolean cardsShown() {
+                return shown[0];
+            }
+        }, env.util);
+        table = new Table(env, slotToCard, cardToSlot);
+        dealer = new Dealer(env, table, players);
+        table.canPlayerModifyTable = false;
+
+        dealer.placeCardsOnTable();
+        assertFalse(table.canPlayerModifyTable); // the players would press slots they do not see yet
+
+        shown[0] = true;
+        dealer.placeCardsOnTable();
+        assertTrue(table.canPlayerModifyTable);
+    }
+
+    @Test
+    void placeCardsOnTable_ExpandsWhenNoSet() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("OverflowColumns", "1");
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+        int[] cards = {0, 1, 3, 4}; // no set
+        for (int slot = 0; slot < cards.length; ++slot) {
+            slotToCard[slot] = cards[slot];
+            cardToSlot[cards[slot]] = slot;
+        }
+        table = new Table(env, slotToCard, cardToSlot);
+        dealer = new Dealer(env, table, players);
+        assertEquals(0, table.solver.countSets(table.snapshot(new int[config.tableSize]), 1));
+
+        dealer.placeCardsOnTable();
+
+        assertEquals(config.tableSize, table.countCards());
+        assertEquals(1, table.solver.countSets(table.snapshot(new int[config.tableSize]), 1));
+        assertEquals(config.deckSize - config.tableSize, dealer.getDeckSize());
+        assertInvariants();
+    }
+
+    @Test
+    void run_TimeoutsPassInVirtualTime() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.put("TurnTimeoutSeconds", "60");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        VirtualClock clock = new VirtualClock();
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config), clock);
+        table = new Table(env);
+        dealer = new Dealer(env, table, new Player[0]);
+
+        Thread thread = new Thread(dealer);
+        thread.start();
+        assertTrue(clock.awaitTime(5 * config.turnTimeoutMillis, 5000)); // five rounds in (at most) 5 real seconds
+        dealer.terminate();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertEquals(config.tableSize, table.countCards());
+    }
+
+    @Test
+    void run_CheckpointsATerminatedGame(@TempDir Path dir) throws InterruptedException, IOException {
+        Path checkpoint = dir.resolve("checkpoint.dat");
+        VirtualClock clock = new VirtualClock();
+        env = new Env(env.logger, env.config, new TableTest.MockUserInterface(), new UtilImpl(env.config), clock);
+        table = new Table(env);
+        players = new Player[]{new Player(env, dealer, table, 0, true), new Player(env, dealer, table, 1, true)};
+        dealer = new Dealer(env, table, players);
+        dealer.setCheckpointFile(checkpoint);
+
+        Thread thread = new Thread(dealer);
+        thread.start();
+        assertTrue(dealer.awaitFirstDeal(5000));
+        dealer.terminate();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        GameSnapshot snapshot = GameSnapshot.read(checkpoint, env.config);
+        assertEquals(dealer.getDeckSize(), snapshot.deck.length);
+        assertEquals(table.countCards(), Arrays.stream(snapshot.slotToCard).filter(card -> card >= 0).count());
+        assertFalse(Files.exists(dir.resolve("checkpoint.dat.tmp")));
+    }
 }
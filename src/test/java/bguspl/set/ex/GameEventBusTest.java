@@ -0,0 +1,138 @@
+package bguspl.set.ex;
+
+import bguspl.set.GameThreads;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventBusTest {
+
+    private final Logger logger = new TableTest.MockLogger();
+
+    /**
+     * Records the sequences of the events it handles.
+     */
+    private static class Recorder implements GameEventBus.Handler {
+        final List<Long> sequences = new ArrayList<>();
+        final long delayMillis;
+        long lost;
+        int placed;
+
+        Recorder(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void onEvent(GameEvent event, boolean endOfBatch) throws InterruptedException {
+            sequences.add(event.sequence);
+            if (event.type == GameEvent.Type.TOKEN_PLACED) placed++;
+            if (delayMillis > 0) Thread.sleep(delayMillis);
+        }
+
+        @Override
+        public void onLost(long events) {
+            lost += events;
+        }
+
+        boolean inOrder() {
+            for (int i = 1; i < sequences.size(); i++)
+                if (sequences.get(i) <= sequences.get(i - 1)) return false;
+            return true;
+        }
+    }
+
+    @Test
+    void publish_EveryConsumerGetsAllTheEventsInOrder() throws InterruptedException {
+        GameEventBus bus = new GameEventBus(logger, 1 << 16);
+        Recorder spinning = new Recorder(0), blocking = new Recorder(0);
+        GameEventBus.Consumer first = bus.addConsumer("spinning", spinning, GameEventBus.WaitStrategy.BUSY_SPIN, 64);
+        GameEventBus.Consumer second = bus.addConsumer("blocking", blocking, GameEventBus.WaitStrategy.BLOCKING, 64);
+        bus.start(new GameThreads());
+
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            int player = i;
+            producers[i] = new Thread(() -> {
+                for (int event = 0; event < 5000; event++)
+                    bus.tokenPlaced(player, event % 12);
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers)
+            producer.join();
+        assertTrue(bus.stop(5000));
+
+        for (Recorder recorder : new Recorder[]{spinning, blocking}) {
+            assertEquals(20000, recorder.sequences.size());
+            assertEquals(20000, recorder.placed);
+            assertEquals(0, recorder.lost);
+            assertTrue(recorder.inOrder());
+        }
+        assertEquals(20000, first.getEvents());
+        assertEquals(0, second.getLag());
+        assertTrue(second.getBatches() <= second.getEvents());
+    }
+
+    @Test
+    void publish_ASlowConsumerLosesEventsWithoutBlockingTheProducer() throws InterruptedException {
+        GameEventBus bus = new GameEventBus(logger, 16);
+        Recorder slow = new Recorder(1);
+        GameEventBus.Consumer consumer = bus.addConsumer("slow", slow, GameEventBus.WaitStrategy.SLEEPING, 4);
+        bus.start(new GameThreads());
+
+        long start = System.nanoTime();
+        for (int event = 0; event < 1000; event++)
+            bus.keyDropped(0, event % 12);
+        long publishMillis = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue(bus.stop(5000));
+
+        assertTrue(publishMillis < 500, "publishing took " + publishMillis + " ms");
+        assertTrue(slow.lost > 0);
+        assertEquals(slow.lost, consumer.getLostEvents());
+        assertEquals(1000, slow.sequences.size() + slow.lost);
+        assertTrue(slow.inOrder());
+        assertTrue(consumer.getMaxLag() > 16);
+    }
+
+    @Test
+    void publish_AFailingHandlerKeepsGettingEvents() throws InterruptedException {
+        GameEventBus bus = new GameEventBus(logger, 64);
+        List<Long> handled = new ArrayList<>();
+        bus.addConsumer("failing", (event, endOfBatch) -> {
+            handled.add(event.sequence);
+            if (event.sequence % 2 == 0) throw new IllegalStateException("bad event " + event.sequence);
+        }, GameEventBus.WaitStrategy.BLOCKING, 8);
+        bus.start(new GameThreads());
+        for (int event = 0; event < 10; event++)
+            bus.cardPlaced(event, event % 12);
+        assertTrue(bus.stop(5000));
+
+        assertEquals(10, handled.size());
+    }
+
+    @Test
+    void stop_GivesUpOnAHungHandler() throws InterruptedException {
+        GameEventBus bus = new GameEventBus(logger, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        bus.addConsumer("hung", (event, endOfBatch) -> release.await(), GameEventBus.WaitStrategy.BLOCKING, 1);
+        bus.start(new GameThreads());
+        assertThrows(IllegalStateException.class, () -> bus.addConsumer("late", new Recorder(0),
+                GameEventBus.WaitStrategy.BLOCKING, 1));
+        bus.claimRejected(0);
+
+        long start = System.nanoTime();
+        assertFalse(bus.stop(100));
+        long stopMillis = (System.nanoTime() - start) / 1_000_000L;
+        release.countDown();
+
+        assertTrue(stopMillis < 2000, "stopping took " + stopMillis + " ms");
+    }
+}
@@ -0,0 +1,89 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameManagementTest {
+
+    Env env;
+    GameManagement management;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        Logger logger = new Logger("", null) {
+        };
+        env = new Env(logger, new Config(logger, properties), null, null);
+        management = new GameManagement(env, null, null);
+    }
+
+    @Test
+    void setters_ReadBackTheSameMillis() {
+        for (long millis = 0; millis <= 100_000; millis += 7) {
+            management.setTableDelayMillis(millis);
+            management.setTurnTimeoutMillis(millis + 1);
+            management.setPointFreezeMillis(millis + 2);
+            management.setPenaltyFreezeMillis(millis + 3);
+            management.setComputerKeyPressMillis(millis + 4);
+            assertEquals(millis, management.getTableDelayMillis());
+            assertEquals(millis + 1, management.getTurnTimeoutMillis());
+            assertEquals(millis + 2, management.getPointFreezeMillis());
+            assertEquals(millis + 3, management.getPenaltyFreezeMillis());
+            assertEquals(millis + 4, management.getComputerKeyPressMillis());
+        }
+        management.setTurnTimeoutMillis(1001); // read back as 1000 when the seconds were truncated
+        assertEquals(1001, env.config.turnTimeoutMillis);
+    }
+
+    @Test
+    void setters_RejectNegativeValues() {
+        long before = management.getTurnTimeoutMillis();
+        assertThrows(IllegalArgumentException.class, () -> management.setTurnTimeoutMillis(-1));
+        assertEquals(before, management.getTurnTimeoutMillis());
+    }
+
+    @Test
+    void gameState_IsReadFromAnotherThread() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("TableDelaySeconds", "0");
+        Logger logger = new Logger("", null) {
+        };
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+        GameManagement management = new GameManagement(env, dealer, table);
+        dealer.placeCardsOnTable();
+
+        AtomicInteger deckSize = new AtomicInteger(), sets = new AtomicInteger();
+        Thread jmx = new Thread(() -> { // as the JMX threads do
+            deckSize.set(management.getDeckSize());
+            sets.set(management.getSetsOnTable());
+        });
+        jmx.start();
+        jmx.join();
+
+        assertEquals(config.deckSize - config.tableSize, deckSize.get());
+        assertEquals(env.util.findSets(Arrays.stream(table.slotToCard).filter(Objects::nonNull)
+                .collect(Collectors.toList()), Integer.MAX_VALUE).size(), sets.get());
+    }
+}
@@ -0,0 +1,160 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private Env env;
+    private Table table;
+    private Player[] players;
+    private Dealer dealer;
+
+    @BeforeEach
+    void setUp() {
+        env = newEnv("2");
+        table = new Table(env);
+        players = newPlayers(env, table);
+        dealer = new Dealer(env, table, players);
+    }
+
+    private static Env newEnv(String players) {
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "3");
+        properties.put("HumanPlayers", players);
+        properties.put("ComputerPlayers", "0");
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+    }
+
+    private static Player[] newPlayers(Env env, Table table) {
+        Player[] players = new Player[env.config.players];
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, null, table, i, true);
+        return players;
+    }
+
+    @Test
+    void resume_RestoresTheGame() throws IOException, InterruptedException {
+        dealer.placeCardsOnTable();
+        players[0].keyPressed(4);
+        players[0].keyPressed(7);
+        for (int slot = 0; slot < 3; slot++)
+            players[1].keyPressed(slot); // a wrong claim (see MockUtil), the player is frozen
+        dealer.removeCardsFromTable();
+        players[0].setScore(2);
+
+        GameSnapshot snapshot = dealer.snapshot();
+        snapshot.write(dir.resolve("checkpoint.dat"));
+        Table resumedTable = new Table(env);
+        Player[] resumedPlayers = newPlayers(env, resumedTable);
+        Dealer resumed = new Dealer(env, resumedTable, resumedPlayers);
+        resumed.resume(GameSnapshot.read(dir.resolve("checkpoint.dat"), env.config));
+
+        assertArrayEquals(table.slotToCard, resumedTable.slotToCard);
+        assertArrayEquals(table.cardToSlot, resumedTable.cardToSlot);
+        assertEquals(dealer.getDeckSize(), resumed.getDeckSize());
+        for (int i = 0; i < players.length; i++) {
+            assertEquals(players[i].score(), resumedPlayers[i].score());
+            assertEquals(players[i].getState(), resumedPlayers[i].getState());
+            assertArrayEquals(players[i].selectedSlots(), resumedPlayers[i].selectedSlots());
+            assertArrayEquals(table.tokenTable[i], resumedTable.tokenTable[i]);
+        }
+        assertEquals(Player.State.FROZEN, resumedPlayers[1].getState());
+        assertEquals(1, resumed.getFrozenPlayers().size());
+        assertTrue(resumed.getFrozenPlayers().peek().remainingMillis(env.clock.currentTimeMillis())
+                <= env.config.penaltyFreezeMillis);
+        assertTrue(resumed.awaitFirstDeal(0)); // the cards are already on the table
+    }
+
+    @Test
+    void decode_RejectsDamagedAndForeignCheckpoints() throws IOException {
+        dealer.placeCardsOnTable();
+        byte[] bytes = dealer.snapshot().encode();
+        assertEquals(dealer.getDeckSize(), GameSnapshot.decode(bytes, env.config).deck.length);
+
+        bytes[bytes.length / 2] ^= 1;
+        assertThrows(IOException.class, () -> GameSnapshot.decode(bytes, env.config));
+        bytes[bytes.length / 2] ^= 1;
+        assertThrows(IOException.class, () -> GameSnapshot.decode(bytes, newEnv("3").config));
+        assertThrows(IOException.class, () -> GameSnapshot.decode(new byte[3], env.config));
+    }
+
+    /**
+     * Replaces the checksum at the end of a record by the checksum of its content.
+     */
+    private static byte[] withChecksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).putLong(crc.getValue());
+        return bytes;
+    }
+
+    @Test
+    void read_RejectsATruncatedFile() throws IOException {
+        dealer.placeCardsOnTable();
+        Path file = dir.resolve("checkpoint.dat");
+        dealer.snapshot().write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2)); // e.g. the disk filled up
+
+        assertThrows(IOException.class, () -> GameSnapshot.read(file, env.config));
+        assertThrows(IOException.class, () -> GameSnapshot.read(dir.resolve("missing.dat"), env.config));
+    }
+
+    @Test
+    void decode_RejectsInconsistentContentWithAValidChecksum() throws IOException {
+        dealer.placeCardsOnTable();
+        byte[] bytes = dealer.snapshot().encode();
+        int deck = 28; // magic, version, table size, players, round time and deck size come first
+        byte[] duplicate = bytes.clone();
+        System.arraycopy(duplicate, deck, duplicate, deck + 4, 4); // the first card twice
+        assertThrows(IOException.class, () -> GameSnapshot.decode(withChecksum(duplicate), env.config));
+
+        byte[] version = bytes.clone();
+        version[7]++;
+        assertThrows(IOException.class, () -> GameSnapshot.decode(withChecksum(version), env.config));
+
+        byte[] oversized = bytes.clone();
+        ByteBuffer.wrap(oversized, 24, 4).putInt(env.config.deckSize + 1);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(withChecksum(oversized), env.config));
+    }
+
+    @Test
+    void write_ReplacesTheCheckpointWithoutLeftovers() throws IOException {
+        Path file = dir.resolve("checkpoint.dat");
+        dealer.snapshot().write(file);
+        dealer.placeCardsOnTable();
+        dealer.snapshot().write(file);
+
+        assertEquals(dealer.getDeckSize(), GameSnapshot.read(file, env.config).deck.length);
+        assertFalse(Files.exists(dir.resolve("checkpoint.dat.tmp")));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -3,7 +3,9 @@ package bguspl.set.ex;
 import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
+import bguspl.set.UserInterfaceHeadless;
 import bguspl.set.Util;
+import bguspl.set.VirtualClock;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,13 +13,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -36,6 +39,8 @@ class PlayerTest {
     @Mock
     private Logger logger;
 
+    private Env env;
+
     void assertInvariants() {
         assertTrue(player.id >= 0);
         assertTrue(player.score() >= 0);
@@ -44,7 +49,7 @@ class PlayerTest {
     @BeforeEach
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        env = new Env(logger, new Config(logger, (String) null), ui, util);
         player = new Player(env, dealer, table, 0, false);
         assertInvariants();
     }
@@ -85,9 +90,9 @@ class PlayerTest {
         //player should be frozen after a penalty
         Player.State expectedState = Player.State.FROZEN;
         //excpected tokenPlcaed
-        AtomicInteger expectedTokensPlace = player.getTokensPlaced();
+        int expectedTokensPlace = player.getTokensPlaced();
         //expected selectedSlots
-        ArrayList<Integer> expectedSelectedSlots = player.selectedSlots;
+        int[] expectedSelectedSlots = player.selectedSlots();
         //run point()
         player.penalty();
         //check state after point
@@ -95,9 +100,9 @@ class PlayerTest {
         // check that the score remains the same
         assertEquals(expectedScore, player.score());
         //check that tokensPlace was reset
-        assertEquals(expectedTokensPlace.intValue(), player.getTokensPlaced().intValue());
+        assertEquals(expectedTokensPlace, player.getTokensPlaced());
         //check that selectedslots is unchanged
-        assertEquals(expectedSelectedSlots, player.selectedSlots);
+        assertArrayEquals(expectedSelectedSlots, player.selectedSlots());
 
     }
 
@@ -109,7 +114,111 @@ class PlayerTest {
     @Test
     void clearPlayerToken() {
         player.clearPlayerToken();
-        assertEquals(player.selectedSlots.isEmpty(), true);
+        assertEquals(player.selectedSlots().length == 0, true);
+    }
+
+    @Test
+    void keyPressed_TogglesTokens() {
+        table.canPlayerModifyTable = true;
+        table.listener = GameListener.NONE;
+
+        player.keyPressed(1);
+        player.keyPressed(4);
+        player.keyPressed(1);
+
+        assertArrayEquals(new int[]{4}, player.selectedSlots());
+        assertEquals(1, player.getTokensPlaced());
+        assertEquals(Player.State.ACTIVE, player.getState());
+        verify(table).clearToken(eq(player.id), eq(1));
+
+        player.setState(Player.State.FROZEN); // a frozen player's key presses are dropped
+        player.keyPressed(2);
+        assertArrayEquals(new int[]{4}, player.selectedSlots());
+    }
+
+    @Test
+    void submitKeyPress_IsHandledByThePlayerThread() throws InterruptedException {
+        table.canPlayerModifyTable = true;
+        table.listener = GameListener.NONE;
+        player = new Player(env, dealer, table, 0, true); // no ai thread
+        Thread thread = new Thread(player);
+        thread.start();
+
+        player.submitKeyPress(3, System.nanoTime());
+        verify(table, timeout(5000)).setToken(eq(player.id), eq(3)); // handled by the player thread
+        player.terminate();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertEquals(1, player.getInputEvents());
+        assertArrayEquals(new int[]{3}, player.selectedSlots());
+        assertTrue(player.getMaxInputLatencyNanos() > 0);
+    }
+
+    @Test
+    void keyPressed_DropsPressesAboveTheRateLimit() {
+        table.canPlayerModifyTable = true;
+        table.listener = GameListener.NONE;
+        VirtualClock clock = new VirtualClock();
+        env = new Env(logger, env.config.with(logger, "InputRatePerSecond", "20"), ui, util, clock);
+        player = new Player(env, dealer, table, 0, false);
+
+        for (int i = 0; i < env.config.inputBurst + 2; i++)
+            player.keyPressed(0); // toggles the same token
+        assertEquals(2, player.getThrottledKeys());
+
+        clock.advanceTo((long) (1000 / env.config.inputRatePerSecond));
+        player.keyPressed(0);
+        assertEquals(2, player.getThrottledKeys());
     }
 
-}
\ No newline at end of file
+    @Test
+    void submitKeyPress_CollapsesPairsOnTheSameSlot() throws InterruptedException {
+        table.canPlayerModifyTable = true;
+        table.listener = GameListener.NONE;
+        player = new Player(env, dealer, table, 0, true);
+        long now = System.nanoTime();
+        player.submitKeyPress(2, now); // queued before the player thread runs
+        player.submitKeyPress(2, now + 1_000_000L);
+        player.submitKeyPress(5, now + 2_000_000L);
+        Thread thread = new Thread(player);
+        thread.start();
+
+        verify(table, timeout(5000)).setToken(eq(player.id), eq(5));
+        player.terminate();
+        thread.join(5000);
+
+        assertEquals(2, player.getCollapsedKeys());
+        assertEquals(1, player.getInputEvents());
+        assertArrayEquals(new int[]{5}, player.selectedSlots());
+    }
+
+    @Test
+    void keyPressed_TheTableFollowsTheTokensWhileTheDealerClearsThem() throws InterruptedException {
+        Logger quiet = new Logger("", null) {
+        };
+        env = new Env(quiet, env.config, new UserInterfaceHeadless(), util);
+        Table real = new Table(env);
+        player = new Player(env, dealer, real, 0, false);
+        Thread presser = new Thread(() -> {
+            for (int i = 0; i < 50_000; i++)
+                player.keyPressed(i % 5);
+        });
+        presser.start();
+        for (int i = 0; presser.isAlive(); i++) { // as the dealer does: lock the table, clear, unlock
+            real.canPlayerModifyTable = false;
+            if (i % 2 == 0) player.clearPlayerToken();
+            else player.discardSlot(i % 5);
+            real.canPlayerModifyTable = true;
+        }
+        presser.join();
+
+        for (int slot = 0; slot < env.config.tableSize; slot++) {
+            boolean selected = false;
+            for (int selectedSlot : player.selectedSlots())
+                selected |= selectedSlot == slot;
+            assertEquals(selected, real.tokenTable[player.id][slot], "slot " + slot);
+        }
+        assertEquals(player.getTokensPlaced(), player.selectedSlots().length);
+    }
+}
@@ -0,0 +1,87 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundPlannerTest {
+
+    Config config;
+    SetSolver solver;
+    RoundPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, new Properties());
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        solver = new SetSolver(config);
+        planner = new RoundPlanner(env, solver, new DealPolicy(env, solver), new Random(1), true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        planner.shutdown();
+    }
+
+    @Test
+    void plan_DealsDistinctCardsFromTheGame() {
+        int[] cards = IntStream.range(0, config.deckSize).map(card -> card % 2 == 0 ? card : -1).toArray();
+        RoundPlanner.Plan plan = planner.plan(cards, 3);
+
+        assertEquals(3, plan.version);
+        assertTrue(plan.hasSets);
+        int[] dealt = Arrays.stream(plan.cards).filter(card -> card >= 0).toArray();
+        assertEquals(config.baseTableSize, dealt.length);
+        assertEquals(dealt.length, Arrays.stream(dealt).distinct().count());
+        for (int card : dealt) assertEquals(0, card % 2);
+        assertEquals(1, solver.countSets(plan.cards, 1));
+    }
+
+    @Test
+    void take_IgnoresPlansForOtherVersions() throws InterruptedException {
+        int[] cards = IntStream.range(0, config.deckSize).toArray();
+        planner.prepare(cards, 1);
+        RoundPlanner.Plan plan = null;
+        for (int i = 0; i < 500 && plan == null; ++i) {
+            Thread.sleep(10);
+            plan = planner.take(1);
+        }
+        assertNotNull(plan);
+
+        planner.prepare(cards, 1);
+        Thread.sleep(100);
+        assertNull(planner.take(2));
+    }
+
+    @Test
+    void plan_EndOfTheGameLeavesSlotsEmpty() {
+        int[] cards = {0, 1, 3, 4, -1}; // no three of these cards form a set
+        assertEquals(0, solver.countSets(cards, 1));
+        RoundPlanner.Plan plan = planner.plan(cards, 7);
+
+        assertFalse(plan.hasSets);
+        assertEquals(config.tableSize, plan.cards.length);
+        int[] dealt = Arrays.stream(plan.cards).filter(card -> card >= 0).sorted().toArray();
+        assertArrayEquals(new int[]{0, 1, 3, 4}, dealt);
+    }
+
+    @Test
+    void prepare_DoesNothingWithoutABackgroundThread() {
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        RoundPlanner inline = new RoundPlanner(env, solver, new DealPolicy(env, solver), new Random(1), false);
+        inline.prepare(IntStream.range(0, config.deckSize).toArray(), 1);
+        assertNull(inline.take(1));
+        inline.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScoreBoardTest {
+
+    @TempDir
+    Path dir;
+
+    private static ScoreBoard.Stats game(boolean won, int sets, int penalties, long... reactions) {
+        ScoreBoard.Stats stats = new ScoreBoard.Stats();
+        stats.games = 1;
+        stats.wins = won ? 1 : 0;
+        stats.sets = sets;
+        stats.penalties = penalties;
+        for (long millis : reactions)
+            stats.reaction(millis);
+        return stats;
+    }
+
+    @Test
+    void add_AccumulatesAcrossReopens() throws IOException {
+        Path file = dir.resolve("scores.dat");
+        try (ScoreBoard board = ScoreBoard.open(file, 4)) {
+            board.add("Alice", game(true, 2, 1, 900, 1500));
+            board.add("Bob", game(false, 1, 0, 700));
+            assertNull(board.get("Carol"));
+        }
+        try (ScoreBoard board = ScoreBoard.open(file, 100)) {
+            assertEquals(4, board.capacity()); // the file keeps its capacity
+            board.add("Alice", game(false, 0, 2));
+            ScoreBoard.Stats alice = board.get("Alice");
+            assertEquals(2, alice.games);
+            assertEquals(1, alice.wins);
+            assertEquals(2, alice.sets);
+            assertEquals(3, alice.penalties);
+            assertEquals(2, alice.reactions);
+            assertEquals(900, alice.fastestMillis);
+            assertEquals(1500, alice.slowestMillis);
+            assertEquals(1200, alice.meanReactionMillis());
+            assertEquals(1, board.get("Bob").games);
+
+            board.add("Carol", game(false, 0, 0));
+            board.add("Dave", game(false, 0, 0));
+            assertThrows(IllegalStateException.class, () -> board.add("Eve", game(false, 0, 0)));
+        }
+    }
+
+    @Test
+    void get_FallsBackToThePreviousCopyOfATornRecord() throws IOException {
+        Path file = dir.resolve("scores.dat");
+        try (ScoreBoard board = ScoreBoard.open(file, 1)) {
+            board.add("Alice", game(true, 1, 0));
+            board.add("Alice", game(true, 1, 0)); // written to the second copy
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 64 + 136 + 70); // a torn write of the second copy
+        }
+        try (ScoreBoard board = ScoreBoard.open(file, 1)) {
+            assertEquals(1, board.get("Alice").games);
+            board.add("Alice", game(true, 1, 0));
+            assertEquals(2, board.get("Alice").games);
+        }
+    }
+
+    @Test
+    void add_ConcurrentGamesAreNotLost() throws Exception {
+        String[] names = {"Alice", "Bob", "Carol", "Dave", "Eve"};
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ScoreBoard board = ScoreBoard.open(dir.resolve("scores.dat"), 64)) {
+            List<Future<?>> games = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                games.add(executor.submit(() -> {
+                    for (int game = 0; game < 50; game++)
+                        for (String name : names)
+                            board.add(name, game(false, 1, 0));
+                    return null;
+                }));
+            for (Future<?> game : games)
+                game.get();
+            for (String name : names) {
+                assertEquals(400, board.get(name).games);
+                assertEquals(400, board.get(name).sets);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void add_TwoScoreBoardsOfAFileInOneProcess() throws Exception {
+        Path file = dir.resolve("scores.dat");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (ScoreBoard first = ScoreBoard.open(file, 16);
+             ScoreBoard second = ScoreBoard.open(dir.resolve(".").resolve("scores.dat"), 16)) {
+            List<Future<?>> games = new ArrayList<>();
+            for (ScoreBoard board : new ScoreBoard[]{first, second, first, second})
+                games.add(executor.submit(() -> {
+                    for (int game = 0; game < 100; game++)
+                        board.add("Alice", game(false, 1, 0));
+                    return null;
+                }));
+            for (Future<?> game : games)
+                game.get(); // an OverlappingFileLockException would fail here
+            assertEquals(400, first.get("Alice").games);
+            assertEquals(400, second.get("Alice").games);
+        } finally {
+            executor.shutdownNow();
+        }
+        try (ScoreBoard board = ScoreBoard.open(file, 16)) { // the locks were released with the last board
+            assertEquals(400, board.get("Alice").sets);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SetSolverTest {
+
+    SetSolver solver;
+    UtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+        Config config = new Config(new TableTest.MockLogger(), new Properties());
+        solver = new SetSolver(config);
+        util = new UtilImpl(config);
+    }
+
+    @Test
+    void complete_MatchesTestSet() {
+        for (int a = 0; a < 81; ++a)
+            for (int b = a + 1; b < 81; ++b) {
+                int c = solver.complete(new int[]{a, b});
+                assertTrue(c >= 0 && c != a && c != b);
+                assertTrue(util.testSet(new int[]{a, b, c}));
+            }
+    }
+
+    @Test
+    void countSets_MatchesUtilFindSets() {
+        Random random = new Random(1);
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        for (int round = 0; round < 50; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> hand = deck.subList(0, 12);
+            int[] cards = hand.stream().mapToInt(Integer::intValue).toArray();
+            assertEquals(util.findSets(hand, Integer.MAX_VALUE).size(), solver.countSets(cards, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void findSet_IgnoresEmptySlots() {
+        int[] cards = {-1, 0, -1, 1, 5, 2};
+        int[] set = solver.findSet(cards);
+        assertNotNull(set);
+        int[] found = Arrays.stream(set).map(slot -> cards[slot]).sorted().toArray();
+        assertArrayEquals(new int[]{0, 1, 2}, found);
+    }
+
+    @Test
+    void findSet_NoSet() {
+        assertNull(solver.findSet(new int[]{0, 1, -1}));
+    }
+}
@@ -0,0 +1,81 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    private Config config(String strategy) {
+        return config(strategy, "0.1");
+    }
+
+    private Config config(String strategy, String errorRate) {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "4");
+        properties.put("ComputerStrategy", strategy);
+        properties.put("ComputerErrorRate", errorRate);
+        properties.put("TurnTimeoutSeconds", "60");
+        return new Config(new TableTest.MockLogger(), properties);
+    }
+
+    @Test
+    void run_IsDeterministicForASeed() {
+        Config config = config("smart");
+        Simulation.Result first = new Simulation(new TableTest.MockLogger(), config, 7).run(3_600_000);
+        Simulation.Result second = new Simulation(new TableTest.MockLogger(), config, 7).run(3_600_000);
+
+        assertEquals(first.toString(), second.toString());
+        assertTrue(first.points > 0);
+        assertEquals(first.points, Arrays.stream(first.scores).sum());
+    }
+
+    @Test
+    void run_TimeoutsTakeNoRealTime() {
+        long start = System.nanoTime();
+        Simulation.Result result = new Simulation(new TableTest.MockLogger(), config("random"), 1).run(600_000);
+
+        assertTrue(result.virtualMillis >= 600_000);
+        assertTrue(result.timeouts > 0); // each timeout is a minute of virtual time
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+
+    @Test
+    void run_ErrorRateSetsTheShareOfPenalties() {
+        Simulation.Result careless = new Simulation(new TableTest.MockLogger(), config("smart", "1"), 3).run(300_000);
+        Simulation.Result careful = new Simulation(new TableTest.MockLogger(), config("smart", "0"), 3).run(300_000);
+
+        // the careless players only score when tokens left over from a penalty happen to form a set
+        assertTrue(careless.points * 20 < careless.penalties, careless.toString());
+        assertEquals(careless.penalties, Arrays.stream(careless.playerPenalties).sum());
+        assertTrue(careless.virtualMillis >= 300_000); // the deck is not used up, the game ends at the limit
+        assertEquals(0, careful.penalties);
+        assertTrue(careful.points > 0);
+    }
+
+    @Test
+    void run_StopsAtTheVirtualTimeLimit() {
+        Simulation.Result result = new Simulation(new TableTest.MockLogger(), config("smart"), 5).run(1);
+
+        assertTrue(result.virtualMillis < 1 + 2 * Dealer.TIMER_TICK_MILLIS);
+        assertEquals(1, result.rounds);
+        assertEquals(0, result.timeouts);
+    }
+
+    @Test
+    void simulatedConfig_ReplacesTheHumansByComputers() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "2");
+        properties.put("ComputerPlayers", "1");
+        Config config = Simulation.simulatedConfig(new TableTest.MockLogger(), properties);
+
+        assertEquals(0, config.humanPlayers);
+        assertEquals(3, config.computerPlayers);
+        assertEquals(3, config.players);
+    }
+}
@@ -0,0 +1,96 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmartStrategyTest {
+
+    Env env;
+    Table table;
+    ComputerStrategy strategy;
+
+    private void setUp(String errorRate) {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "1");
+        properties.put("ComputerErrorRate", errorRate);
+        properties.put("TableDelaySeconds", "0");
+        properties.put("LogLevel", "OFF");
+        Logger logger = new Logger("", null) {
+        };
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        table = new Table(env);
+        Player player = new Player(env, null, table, 0, false);
+        strategy = new SmartStrategy(env, table, player, new Random(7));
+    }
+
+    /**
+     * @return - the cards of the next claim the strategy plans.
+     */
+    private int[] nextClaim() {
+        int[] cards = new int[env.config.featureSize];
+        for (int i = 0; i < cards.length; i++) {
+            int slot = strategy.nextSlot();
+            assertTrue(slot >= 0);
+            cards[i] = table.slotToCard[slot];
+        }
+        return cards;
+    }
+
+    @Test
+    void nextSlot_ErrorRateOneNeverClaimsASet() {
+        setUp("1");
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            table.placeCard(slot, slot);
+        for (int i = 0; i < 200; i++)
+            assertFalse(env.util.testSet(nextClaim()));
+    }
+
+    @Test
+    void nextSlot_ErrorFindsTheOnlyOtherCard() {
+        setUp("1");
+        table.placeCard(0, 3); // cards 0, 1 and 2 form a set, card 4 does not fit it
+        table.placeCard(1, 6);
+        table.placeCard(2, 9);
+        table.placeCard(4, 11);
+        for (int i = 0; i < 100; i++) {
+            int[] cards = nextClaim();
+            assertFalse(env.util.testSet(cards));
+            assertTrue(Arrays.stream(cards).anyMatch(card -> card == 4));
+        }
+    }
+
+    @Test
+    void nextSlot_ErrorRateZeroAlwaysClaimsASet() {
+        setUp("0");
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            table.placeCard(slot, slot);
+        for (int i = 0; i < 200; i++)
+            assertTrue(env.util.testSet(nextClaim()));
+    }
+
+    @Test
+    void nextSlot_ErrorRateIsHonouredOnAverage() {
+        setUp("0.3");
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            table.placeCard(slot, slot);
+        int wrong = 0;
+        int claims = 2000;
+        for (int i = 0; i < claims; i++)
+            if (!env.util.testSet(nextClaim())) wrong++;
+        assertEquals(0.3, (double) wrong / claims, 0.05);
+    }
+}
@@ -7,6 +7,8 @@ import bguspl.set.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
@@ -230,4 +232,21 @@ class TableTest {
         assertEquals(table.tokenTable[1][1], false);
         assertEquals(table.tokenTable[0][1], false);
     }
+
+    @Test
+    void removeCards_ReportsTheTokensOnTheCards() {
+        fillSomeSlots();
+        placeSomeTokensTwoPlayersInSameSlot();
+        List<String> removed = new ArrayList<>();
+        table.setListener(new GameListener() {
+            @Override
+            public void tokenRemoved(int player, int slot) {
+                removed.add(player + "@" + slot);
+            }
+        });
+        table.removeCards(Arrays.asList(1, 2));
+        assertEquals(Arrays.asList("0@1", "1@1"), removed);
+        assertEquals(false, table.tokenTable[0][1]);
+        assertEquals(true, table.tokenTable[0][0]);
+    }
 }
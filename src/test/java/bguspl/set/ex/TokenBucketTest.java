@@ -0,0 +1,52 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void tryAcquire_AllowsABurstThenTheRate() {
+        TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < 3; i++)
+            assertTrue(bucket.tryAcquire(1000, 10, 3));
+        assertFalse(bucket.tryAcquire(1000, 10, 3));
+        assertFalse(bucket.tryAcquire(1050, 10, 3)); // half a token
+        assertTrue(bucket.tryAcquire(1100, 10, 3));
+        assertFalse(bucket.tryAcquire(1100, 10, 3));
+        for (int i = 0; i < 3; i++) // the bucket does not fill above the burst
+            assertTrue(bucket.tryAcquire(5000, 10, 3));
+        assertFalse(bucket.tryAcquire(5000, 10, 3));
+    }
+
+    @Test
+    void tryAcquire_NoLimitWithoutARate() {
+        TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < 1000; i++)
+            assertTrue(bucket.tryAcquire(0, 0, 1));
+    }
+
+    @Test
+    void tryAcquire_TimeGoingBackDoesNotAddTokens() {
+        TokenBucket bucket = new TokenBucket();
+        assertTrue(bucket.tryAcquire(10_000, 1, 1));
+        assertFalse(bucket.tryAcquire(5_000, 1, 1)); // e.g. the game clock was reset
+        assertFalse(bucket.tryAcquire(5_500, 1, 1));
+        assertTrue(bucket.tryAcquire(6_000, 1, 1)); // a second after the clock went back
+    }
+
+    @Test
+    void tryAcquire_FollowsRateAndBurstChanges() {
+        TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < 5; i++)
+            assertTrue(bucket.tryAcquire(0, 1, 5));
+        assertFalse(bucket.tryAcquire(0, 1, 5));
+        assertTrue(bucket.tryAcquire(10, 100, 5)); // a higher rate refills faster
+        assertFalse(bucket.tryAcquire(10, 100, 5));
+
+        assertTrue(bucket.tryAcquire(60_000, 1, 0)); // the burst is at least 1, and lowering it drops the extra tokens
+        assertFalse(bucket.tryAcquire(60_000, 1, 0));
+    }
+}
@@ -0,0 +1,79 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest {
+
+    private Config config() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("ComputerStrategy", "smart,random");
+        properties.put("ComputerReactionSeconds", "0.5");
+        properties.put("TurnTimeoutSeconds", "60");
+        return new Config(new TableTest.MockLogger(), properties);
+    }
+
+    @Test
+    void run_ResultsDoNotDependOnTheThreads() throws InterruptedException {
+        Config config = config();
+        Tournament.Standings one = new Tournament(new TableTest.MockLogger(), config, 1).run(12, 5, 600_000);
+        Tournament.Standings three = new Tournament(new TableTest.MockLogger(), config, 3).run(12, 5, 600_000);
+
+        assertEquals(one.toString(), three.toString());
+        assertEquals(12, one.getGames());
+        assertTrue(one.getWins(0) > one.getWins(1)); // the smart player wins
+        assertTrue(one.getPenalties(1) > 0);
+    }
+
+    @Test
+    void lengthPercentile_UsesTheHistogram() {
+        Tournament.Standings standings = new Tournament.Standings(config());
+        for (long millis : new long[]{5_000, 15_000, 16_000, 95_000})
+            standings.add(new Simulation.Result(0, millis, 1, 1, 0, 0, 0, new int[2], new int[2]));
+
+        assertEquals(10_000, standings.lengthPercentile(0.25));
+        assertEquals(20_000, standings.lengthPercentile(0.5));
+        assertEquals(95_000, standings.lengthPercentile(1.0));
+        assertEquals(4, standings.getGames());
+        assertEquals(0, standings.getWins(0)); // a tie
+        assertEquals(4, standings.getTies(1));
+    }
+
+    @Test
+    void standings_WithoutGames() {
+        Tournament.Standings standings = new Tournament.Standings(config());
+
+        assertEquals(0, standings.getGames());
+        assertEquals(0, standings.lengthPercentile(0.5));
+        assertTrue(standings.toString().contains("0 games: 0.00 sets"), standings.toString());
+    }
+
+    @Test
+    void lengthPercentile_GrowsTheHistogramForLongGames() {
+        Tournament.Standings standings = new Tournament.Standings(config());
+        standings.add(new Simulation.Result(0, 5_000, 1, 1, 0, 0, 0, new int[]{1, 0}, new int[2]));
+        standings.add(new Simulation.Result(1, 3_600_000, 1, 1, 0, 0, 0, new int[]{0, 1}, new int[2]));
+
+        assertEquals(10_000, standings.lengthPercentile(0.5));
+        assertEquals(3_600_000, standings.lengthPercentile(1.0)); // capped by the longest game, not the bucket end
+        assertEquals(1, standings.getWins(0));
+        assertEquals(1, standings.getWins(1));
+        assertTrue(standings.toString().contains("3600-3610 s: 1"), standings.toString());
+    }
+
+    @Test
+    void run_ZeroGamesOrMoreThreadsThanGames() throws InterruptedException {
+        Config config = config();
+        assertEquals(0, new Tournament(new TableTest.MockLogger(), config, 2).run(0, 1, 60_000).getGames());
+        Tournament.Standings standings = new Tournament(new TableTest.MockLogger(), config, 8).run(2, 1, 60_000);
+        assertEquals(2, standings.getGames());
+        assertTrue(standings.getVirtualMillis() <= 2 * (60_000 + 2 * Dealer.TIMER_TICK_MILLIS));
+    }
+}
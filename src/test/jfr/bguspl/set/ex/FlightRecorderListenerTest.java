@@ -0,0 +1,90 @@
+package bguspl.set.ex;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightRecorderListenerTest {
+
+    @Test
+    void flightRecorder_IsLoadedByName() {
+        assertTrue(GameListener.flightRecorder(2) instanceof FlightRecorderListener);
+    }
+
+    @Test
+    void events_AreRecorded() throws IOException {
+        GameListener listener = new FlightRecorderListener(2);
+        Path file = Files.createTempFile("set-game", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.disable("bguspl.set.ClaimEnqueued"); // the game events are enabled by default
+            recording.start();
+
+            listener.cardPlaced(7, 3);
+            listener.claimEnqueued(1, new int[]{1, 2, 3});
+            listener.claimChecked(1, false);
+            listener.playerFrozen(1, 3000, true);
+            listener.playerUnfrozen(1);
+            listener.claimChecked(0, true); // no open claim, nothing is recorded
+
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            List<String> names = events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList());
+
+            assertEquals(3, events.size(), names.toString());
+            RecordedEvent verdict = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("bguspl.set.ClaimVerdict"))
+                    .findFirst().orElse(null);
+            assertNotNull(verdict);
+            assertEquals(1, verdict.getInt("player"));
+            assertEquals("illegal", verdict.getString("outcome"));
+            assertTrue(names.contains("bguspl.set.CardPlaced"));
+            assertTrue(names.contains("bguspl.set.PlayerFrozen"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void claims_AreClosedOnceAndOnlyIfOpenedWhileRecording() throws IOException {
+        GameListener listener = new FlightRecorderListener(2);
+        listener.claimEnqueued(0, new int[]{1, 2, 3}); // before the recording, no verdict is timed
+        Path file = Files.createTempFile("set-game", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.disable("bguspl.set.ClaimEnqueued");
+            recording.enable("bguspl.set.ClaimVerdict").withThreshold(Duration.ZERO);
+            recording.start();
+
+            listener.claimRejected(0);
+            listener.claimEnqueued(1, new int[]{4, 5, 6});
+            listener.claimRejected(1);
+            listener.claimChecked(1, true); // the claim was already closed
+            listener.reshuffleFinished(12); // the reshuffle started before the recording
+
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> verdicts = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("bguspl.set."))
+                    .collect(Collectors.toList());
+
+            assertEquals(1, verdicts.size(), verdicts.toString());
+            assertEquals("bguspl.set.ClaimVerdict", verdicts.get(0).getEventType().getName());
+            assertEquals(1, verdicts.get(0).getInt("player"));
+            assertEquals("rejected", verdicts.get(0).getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}